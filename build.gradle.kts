@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("com.gradleup.shadow") version "9.0.2"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 repositories {
@@ -15,10 +16,25 @@ dependencies {
     shadow("com.github.MediaRoulette:MediaRoulette:v1.0.79")
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testImplementation("com.github.MediaRoulette:MediaRoulette:v1.0.79")
+    testImplementation("org.openjdk.jol:jol-core:0.17")
+    jmhImplementation("com.github.MediaRoulette:MediaRoulette:v1.0.79")
 }
 
 tasks.test {
     useJUnitPlatform()
+    // Lets JOL attach to the test JVM to read object layouts
+    jvmArgs("-Djdk.attach.allowAttachSelf=true")
+}
+
+// Run with ./gradlew jmh; results land in build/results/jmh
+jmh {
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
 }
 
 tasks.jar {
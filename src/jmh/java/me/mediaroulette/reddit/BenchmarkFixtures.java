@@ -0,0 +1,37 @@
+package me.mediaroulette.reddit;
+
+import me.hash.mediaroulette.model.content.MediaSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Shared helpers for loading fixtures in benchmarks.
+ * The listing fixtures are synthetic: they follow the shape of real /r/{sub}/{sort} responses and are
+ * sized like production requests (limit=50), with distinct post ids, titles and media URLs per post.
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    public static byte[] load(String resource) throws IOException {
+        try (InputStream stream = BenchmarkFixtures.class.getClassLoader().getResourceAsStream(resource)) {
+            if (stream == null) {
+                throw new IOException("Missing benchmark fixture: " + resource);
+            }
+            return stream.readAllBytes();
+        }
+    }
+
+    /**
+     * Registers the REDDIT media source the plugin normally registers in onLoad
+     */
+    public static void registerMediaSource() {
+        try {
+            MediaSource.register("REDDIT", "Reddit");
+        } catch (Exception ignored) {
+            // Already registered by an earlier benchmark in the same JVM
+        }
+    }
+}
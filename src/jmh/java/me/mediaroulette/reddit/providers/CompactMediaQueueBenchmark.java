@@ -0,0 +1,65 @@
+package me.mediaroulette.reddit.providers;
+
+import me.mediaroulette.reddit.BenchmarkFixtures;
+import me.mediaroulette.reddit.reddit.RedditListingParser;
+import me.mediaroulette.reddit.reddit.RedditMedia;
+import me.mediaroulette.reddit.reddit.RedditPostProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of filling a subreddit queue the way a refresh does (size check before every offer) and draining it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CompactMediaQueueBenchmark {
+    private static final int QUEUE_SIZE = 200;
+
+    private List<RedditMedia> media;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkFixtures.registerMediaSource();
+        RedditPostProcessor postProcessor = new RedditPostProcessor();
+        RedditListingParser listingParser = new RedditListingParser();
+
+        List<RedditMedia> fixtureMedia = new ArrayList<>();
+        for (String fixture : new String[]{"gallery", "video", "text", "external"}) {
+            byte[] listing = BenchmarkFixtures.load("fixtures/" + fixture + ".json");
+            fixtureMedia.addAll(postProcessor.processPosts(listingParser.parse(new ByteArrayInputStream(listing)).posts()));
+        }
+
+        media = new ArrayList<>(QUEUE_SIZE);
+        while (media.size() < QUEUE_SIZE) {
+            media.addAll(fixtureMedia.subList(0, Math.min(fixtureMedia.size(), QUEUE_SIZE - media.size())));
+        }
+    }
+
+    @Benchmark
+    public CompactMediaQueue fillToCapacity() {
+        CompactMediaQueue queue = new CompactMediaQueue(QUEUE_SIZE);
+        for (RedditMedia item : media) {
+            if (queue.size() >= QUEUE_SIZE) {
+                break;
+            }
+            queue.offer(item);
+        }
+        return queue;
+    }
+
+    @Benchmark
+    public int fillAndDrain() {
+        CompactMediaQueue queue = fillToCapacity();
+        int drained = 0;
+        while (queue.poll() != null) {
+            drained++;
+        }
+        return drained;
+    }
+}
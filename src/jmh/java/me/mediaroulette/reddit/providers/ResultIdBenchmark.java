@@ -0,0 +1,57 @@
+package me.mediaroulette.reddit.providers;
+
+import me.mediaroulette.reddit.BenchmarkFixtures;
+import me.mediaroulette.reddit.reddit.RedditListingParser;
+import me.mediaroulette.reddit.reddit.RedditMedia;
+import me.mediaroulette.reddit.reddit.RedditPostProcessor;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of dedupe identity generation over one listing's worth of results
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ResultIdBenchmark {
+
+    private List<String> postIds;
+    private List<RedditMedia> media;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkFixtures.registerMediaSource();
+        RedditPostProcessor postProcessor = new RedditPostProcessor();
+        RedditListingParser listingParser = new RedditListingParser();
+
+        postIds = new ArrayList<>();
+        media = new ArrayList<>();
+        for (String fixture : new String[]{"gallery", "video", "text", "external"}) {
+            byte[] listing = BenchmarkFixtures.load("fixtures/" + fixture + ".json");
+            List<JSONObject> posts = listingParser.parse(new ByteArrayInputStream(listing)).posts();
+            posts.forEach(post -> postIds.add(post.getString("id")));
+            media.addAll(postProcessor.processPosts(posts));
+        }
+    }
+
+    @Benchmark
+    public void postKeys(Blackhole blackhole) {
+        for (String postId : postIds) {
+            blackhole.consume(RedditMedia.postKey(postId, 0));
+        }
+    }
+
+    @Benchmark
+    public void contentKeys(Blackhole blackhole) {
+        for (RedditMedia item : media) {
+            blackhole.consume(RedditMedia.contentKey(item.imageUrl(), item.post().title()));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package me.mediaroulette.reddit.reddit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of media URL classification over the URL shapes seen in listings
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MediaUrlClassifierBenchmark {
+
+    private final String[] urls = {
+            "https://i.redd.it/abc123def456.jpg",
+            "https://preview.redd.it/abc123def456.png?width=1080&crop=smart&auto=webp&s=0123456789abcdef",
+            "https://external-preview.redd.it/Xyz-AbC_dEf.jpg?auto=webp&s=0123456789abcdef",
+            "https://i.imgur.com/AbCdEfG.gifv",
+            "https://www.redgifs.com/watch/happyfuzzycat",
+            "https://v.redd.it/abc123def456/DASH_720.mp4?source=fallback",
+            "https://www.reddit.com/r/pics/comments/1a0000x/some_title/",
+            "self"
+    };
+
+    @Benchmark
+    public void classify(Blackhole blackhole) {
+        for (String url : urls) {
+            blackhole.consume(MediaUrlClassifier.classify(url));
+        }
+    }
+}
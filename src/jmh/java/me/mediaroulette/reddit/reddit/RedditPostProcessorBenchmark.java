@@ -0,0 +1,57 @@
+package me.mediaroulette.reddit.reddit;
+
+import me.mediaroulette.reddit.BenchmarkFixtures;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of listing parsing and post processing on synthetic 50-post listing fixtures.
+ * Run with the gc profiler (enabled in build.gradle.kts) to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RedditPostProcessorBenchmark {
+
+    @Param({"gallery", "video", "text", "external"})
+    public String fixture;
+
+    private final RedditPostProcessor postProcessor = new RedditPostProcessor();
+    private final RedditListingParser listingParser = new RedditListingParser();
+
+    private byte[] listingBytes;
+    private JSONArray children;
+    private List<JSONObject> parsedPosts;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkFixtures.registerMediaSource();
+        listingBytes = BenchmarkFixtures.load("fixtures/" + fixture + ".json");
+        children = new JSONObject(new String(listingBytes, StandardCharsets.UTF_8))
+                .getJSONObject("data")
+                .getJSONArray("children");
+        parsedPosts = listingParser.parse(new ByteArrayInputStream(listingBytes)).posts();
+    }
+
+    @Benchmark
+    public List<RedditMedia> processPosts() {
+        return postProcessor.processPosts(children);
+    }
+
+    @Benchmark
+    public List<RedditMedia> processParsedPosts() {
+        return postProcessor.processPosts(parsedPosts);
+    }
+
+    @Benchmark
+    public List<RedditMedia> parseAndProcessListing() throws IOException {
+        return postProcessor.processPosts(listingParser.parse(new ByteArrayInputStream(listingBytes)).posts());
+    }
+}
@@ -0,0 +1,38 @@
+package me.mediaroulette.reddit.resolvers;
+
+import me.mediaroulette.reddit.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of M3U8 playlist parsing for relative and absolute segment URLs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class M3u8ParserBenchmark {
+    private static final String BASE_URL = "https://api.redgifs.com/v2/gifs/happyfuzzycat/sd.m3u8";
+    private static final String SEGMENT_PREFIX = "https://media.redgifs.com/happyfuzzycat/";
+
+    private String relativePlaylist;
+    private String absolutePlaylist;
+
+    @Setup
+    public void setup() throws IOException {
+        relativePlaylist = new String(BenchmarkFixtures.load("fixtures/playlist.m3u8"), StandardCharsets.UTF_8);
+        absolutePlaylist = relativePlaylist.replace("segment-", SEGMENT_PREFIX + "segment-");
+    }
+
+    @Benchmark
+    public String parseRelativePlaylist() {
+        return M3u8Parser.parseM3u8Content(relativePlaylist, BASE_URL);
+    }
+
+    @Benchmark
+    public String parseAbsolutePlaylist() {
+        return M3u8Parser.parseM3u8Content(absolutePlaylist, BASE_URL);
+    }
+}
@@ -0,0 +1,194 @@
+package me.mediaroulette.reddit.providers;
+
+import me.mediaroulette.reddit.reddit.RedditMedia;
+import me.mediaroulette.reddit.reddit.RedditPost;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded FIFO of queued Reddit media, stored column-wise in array-backed ring buffers.
+ * Items are unpacked into fields instead of being held as objects: no node or record per item,
+ * gallery images share one {@link RedditPost}, and well-known URL prefixes are replaced by a one-byte
+ * code so only the distinctive tail of each URL is kept. A {@link RedditMedia} is rebuilt on poll.
+ * Offers and polls are O(1) under a short lock; the item count is published separately so size
+ * checks on the request path and in refresh loops never take the lock.
+ */
+public class CompactMediaQueue {
+
+    // Code 0 means the URL is stored whole
+    private static final String[] URL_PREFIXES = {
+            "",
+            "https://i.redd.it/",
+            "https://preview.redd.it/",
+            "https://external-preview.redd.it/",
+            "https://v.redd.it/",
+            "https://i.imgur.com/",
+            "https://media.redgifs.com/",
+            "https://www.redgifs.com/watch/"
+    };
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int maxCapacity;
+
+    // Guarded by this; slot i of every column belongs to the same item
+    private long[] keys;
+    private long[] originKeys;
+    private byte[] urlPrefixes;
+    private String[] urlSuffixes;
+    private String[] imageTypes;
+    private String[] imageContents;
+    private RedditPost[] posts;
+    // galleryIndex in the high half, galleryTotal in the low half
+    private int[] galleryPositions;
+    private int head;
+    // Written only under the lock, read without it
+    private volatile int size;
+
+    public CompactMediaQueue(int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+        allocate(Math.min(INITIAL_CAPACITY, maxCapacity));
+    }
+
+    /**
+     * @return false if the queue is at its maximum capacity
+     */
+    public synchronized boolean offer(RedditMedia media) {
+        if (size == keys.length) {
+            if (size >= maxCapacity) {
+                return false;
+            }
+            grow();
+        }
+
+        int slot = (head + size) % keys.length;
+        keys[slot] = media.key();
+        originKeys[slot] = media.originKey();
+        int prefix = prefixCode(media.imageUrl());
+        urlPrefixes[slot] = (byte) prefix;
+        urlSuffixes[slot] = prefix == 0 ? media.imageUrl() : media.imageUrl().substring(URL_PREFIXES[prefix].length());
+        imageTypes[slot] = media.imageType();
+        imageContents[slot] = media.imageContent();
+        posts[slot] = media.post();
+        galleryPositions[slot] = media.galleryIndex() << 16 | (media.galleryTotal() & 0xFFFF);
+        size++;
+        return true;
+    }
+
+    public synchronized RedditMedia poll() {
+        if (size == 0) {
+            return null;
+        }
+        RedditMedia media = read(head);
+        clear(head);
+        head = (head + 1) % keys.length;
+        size--;
+        return media;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copies the queued items in FIFO order
+     */
+    public synchronized List<RedditMedia> snapshot() {
+        int count = size;
+        List<RedditMedia> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(read((head + i) % keys.length));
+        }
+        return items;
+    }
+
+    /**
+     * Rough heap used by the columns and the strings only this queue references
+     */
+    public synchronized long memoryBytes() {
+        long bytes = (long) keys.length * (Long.BYTES * 2 + 1 + Integer.BYTES * 5);
+        RedditPost previousPost = null;
+        int count = size;
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) % keys.length;
+            bytes += stringBytes(urlSuffixes[slot]) + stringBytes(imageTypes[slot]) + stringBytes(imageContents[slot]);
+            // Gallery images are queued together and share their post
+            RedditPost post = posts[slot];
+            if (post != previousPost) {
+                bytes += 24 + stringBytes(post.title()) + stringBytes(post.permalink());
+                previousPost = post;
+            }
+        }
+        return bytes;
+    }
+
+    private RedditMedia read(int slot) {
+        int prefix = urlPrefixes[slot];
+        String imageUrl = prefix == 0 ? urlSuffixes[slot] : URL_PREFIXES[prefix] + urlSuffixes[slot];
+        int position = galleryPositions[slot];
+        return new RedditMedia(keys[slot], originKeys[slot], imageUrl, imageTypes[slot], imageContents[slot],
+                posts[slot], position >>> 16, position & 0xFFFF);
+    }
+
+    private void clear(int slot) {
+        urlSuffixes[slot] = null;
+        imageTypes[slot] = null;
+        imageContents[slot] = null;
+        posts[slot] = null;
+    }
+
+    private void grow() {
+        int capacity = Math.min(maxCapacity, keys.length * 2);
+        int length = keys.length;
+        // Unwrap the ring so the items start at slot 0 of the new columns
+        keys = unwrap(keys, new long[capacity], length);
+        originKeys = unwrap(originKeys, new long[capacity], length);
+        urlPrefixes = unwrap(urlPrefixes, new byte[capacity], length);
+        urlSuffixes = unwrap(urlSuffixes, new String[capacity], length);
+        imageTypes = unwrap(imageTypes, new String[capacity], length);
+        imageContents = unwrap(imageContents, new String[capacity], length);
+        posts = unwrap(posts, new RedditPost[capacity], length);
+        galleryPositions = unwrap(galleryPositions, new int[capacity], length);
+        head = 0;
+    }
+
+    private <T> T unwrap(T source, T target, int length) {
+        int firstPart = Math.min(size, length - head);
+        System.arraycopy(source, head, target, 0, firstPart);
+        System.arraycopy(source, 0, target, firstPart, size - firstPart);
+        return target;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        originKeys = new long[capacity];
+        urlPrefixes = new byte[capacity];
+        urlSuffixes = new String[capacity];
+        imageTypes = new String[capacity];
+        imageContents = new String[capacity];
+        posts = new RedditPost[capacity];
+        galleryPositions = new int[capacity];
+    }
+
+    private static int prefixCode(String url) {
+        if (url == null) {
+            return 0;
+        }
+        for (int code = 1; code < URL_PREFIXES.length; code++) {
+            if (url.startsWith(URL_PREFIXES[code])) {
+                return code;
+            }
+        }
+        return 0;
+    }
+
+    private static long stringBytes(String value) {
+        // Object header, length and hash fields plus the Latin-1 byte array
+        return value == null ? 0 : 40 + value.length();
+    }
+}
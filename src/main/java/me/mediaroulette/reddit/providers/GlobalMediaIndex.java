@@ -0,0 +1,145 @@
+package me.mediaroulette.reddit.providers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Memory-bounded index of media identities served or queued across all subreddits.
+ * A lock-free open-addressing table of long keys with per-slot expiry times: expired slots are
+ * reused in place, and when a probe window is full the entry closest to expiry is evicted.
+ * Checks are best effort; two threads racing on the same new key may both see it as new.
+ */
+public class GlobalMediaIndex {
+
+    private static final long EMPTY = 0L;
+    private static final int MAX_PROBES = 16;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray expiresAt;
+    private final int mask;
+    private final long ttlMillis;
+
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param capacity  number of slots, rounded up to a power of two
+     * @param ttlMillis how long an identity is remembered
+     */
+    public GlobalMediaIndex(int capacity, long ttlMillis) {
+        int size = Integer.highestOneBit(Math.max(MAX_PROBES, capacity - 1)) << 1;
+        this.keys = new AtomicLongArray(size);
+        this.expiresAt = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Records both identities of a result
+     *
+     * @param urlKey    normalized media URL key, or 0 if the result has none
+     * @param originKey key of the original post
+     * @return false if either identity was already seen within the TTL
+     */
+    public boolean markIfNew(long urlKey, long originKey) {
+        long now = System.currentTimeMillis();
+        if (contains(urlKey, now) || contains(originKey, now)) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+        put(urlKey, now);
+        put(originKey, now);
+        return true;
+    }
+
+    private boolean contains(long key, long now) {
+        if (key == EMPTY) {
+            return false;
+        }
+        int start = slot(key);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int slot = (start + i) & mask;
+            long current = keys.get(slot);
+            if (current == key) {
+                return expiresAt.get(slot) > now;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void put(long key, long now) {
+        if (key == EMPTY) {
+            return;
+        }
+        long expiry = now + ttlMillis;
+        int start = slot(key);
+
+        // Bounded retries: a lost CAS means another thread claimed the slot first
+        for (int attempt = 0; attempt < 4; attempt++) {
+            int candidate = -1;
+            long candidateKey = EMPTY;
+            long candidateExpiry = Long.MAX_VALUE;
+
+            for (int i = 0; i < MAX_PROBES; i++) {
+                int slot = (start + i) & mask;
+                long current = keys.get(slot);
+                if (current == key) {
+                    expiresAt.set(slot, expiry);
+                    return;
+                }
+
+                // Take the first empty slot, else the slot that expires soonest (an expired one if any)
+                long slotExpiry = current == EMPTY ? Long.MIN_VALUE : expiresAt.get(slot);
+                if (candidate < 0 || slotExpiry < candidateExpiry) {
+                    candidate = slot;
+                    candidateKey = current;
+                    candidateExpiry = slotExpiry;
+                }
+                if (current == EMPTY) {
+                    break;
+                }
+            }
+
+            if (keys.compareAndSet(candidate, candidateKey, key)) {
+                expiresAt.set(candidate, expiry);
+                if (candidateKey != EMPTY && candidateExpiry > now) {
+                    evictions.incrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    private int slot(long key) {
+        // Fibonacci hashing; the high bits are well mixed even for sequential post ids
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /**
+     * Number of live identities; scans the whole table
+     */
+    public int size() {
+        long now = System.currentTimeMillis();
+        int size = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            if (keys.get(slot) != EMPTY && expiresAt.get(slot) > now) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("capacity", mask + 1);
+        stats.put("duplicates", duplicates.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+}
@@ -0,0 +1,8 @@
+package me.mediaroulette.reddit.providers;
+
+/**
+ * Position in one subreddit listing: the next page's after token, pages read so far and when the walk began.
+ * A null after token means the end of the listing was reached and the next refresh starts over.
+ */
+public record ListingCursor(String after, int page, long startedAt) {
+}
@@ -0,0 +1,234 @@
+package me.mediaroulette.reddit.providers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.mediaroulette.reddit.reddit.RedditMedia;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of queue changes for the Reddit media cache.
+ * Adds and consumes are buffered, debounced and appended in batches, so disk I/O scales with the
+ * number of changes rather than the size of the cache. In the background the journal is compacted:
+ * every subreddit touched since the last compaction is snapshotted once and the journal is truncated.
+ * Records since the last compaction are also kept in memory, so subreddits that are not resident
+ * can have them applied to their stored snapshot.
+ */
+public class MediaCacheJournal {
+    private static final Logger logger = LoggerFactory.getLogger(MediaCacheJournal.class);
+
+    private static final long FLUSH_DELAY_MILLIS = 1000;
+    private static final long COMPACTION_INTERVAL_MINUTES = 5;
+    private static final int COMPACTION_THRESHOLD = 5000;
+    // Records kept in memory and on disk while compactions keep failing; beyond this they are dropped
+    private static final int MAX_RETAINED_RECORDS = 50_000;
+
+    public enum Operation {
+        ADD,
+        CONSUME
+    }
+
+    /**
+     * A single journal record; media is only set for ADD records
+     */
+    public record Entry(Operation operation, String subreddit, long id, RedditMedia media) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path file;
+    private final Consumer<Map<String, List<Entry>>> snapshotWriter;
+
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    // Records since the last compaction by subreddit; each list is only touched inside a map operation on its key
+    private final ConcurrentHashMap<String, List<Entry>> changes = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reddit-cache-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private int recordsSinceCompaction;
+
+    /**
+     * @param fileName       journal file, next to the persistent cache snapshot
+     * @param snapshotWriter writes the current state of the given subreddits to the snapshot during compaction,
+     *                       receiving each one's records since the last compaction; throws to keep them for the next one
+     */
+    public MediaCacheJournal(String fileName, Consumer<Map<String, List<Entry>>> snapshotWriter) {
+        this.file = Path.of(fileName);
+        this.snapshotWriter = snapshotWriter;
+
+        scheduler.scheduleWithFixedDelay(this::compact,
+                COMPACTION_INTERVAL_MINUTES, COMPACTION_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public void recordAdd(String subreddit, RedditMedia media) {
+        append(new Entry(Operation.ADD, subreddit, media.key(), media));
+    }
+
+    public void recordConsume(String subreddit, long id) {
+        append(new Entry(Operation.CONSUME, subreddit, id, null));
+    }
+
+    /**
+     * Marks a subreddit for the next compaction without journaling a record, for state that is
+     * cheap to lose in a crash, such as listing cursors
+     */
+    public void markChanged(String subreddit) {
+        changes.computeIfAbsent(subreddit, _ -> new ArrayList<>());
+    }
+
+    /**
+     * Returns the subreddit's records since the last compaction, in write order
+     */
+    public List<Entry> pendingChanges(String subreddit) {
+        List<Entry> copy = new ArrayList<>();
+        changes.computeIfPresent(subreddit, (_, entries) -> {
+            copy.addAll(entries);
+            return entries;
+        });
+        return copy;
+    }
+
+    private void append(Entry entry) {
+        // Tracked before it is queued for the file, so a compaction never truncates a record it did not snapshot
+        changes.compute(entry.subreddit(), (_, entries) -> {
+            List<Entry> list = entries != null ? entries : new ArrayList<>();
+            list.add(entry);
+            return list;
+        });
+        pending.add(entry);
+
+        // Debounce: the first record after a flush schedules the next one
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(this::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Appends all buffered records to the journal in one write
+     */
+    public synchronized void flush() {
+        flushScheduled.set(false);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        int written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            Entry entry;
+            while ((entry = pending.poll()) != null) {
+                writer.write(objectMapper.writeValueAsString(entry));
+                writer.newLine();
+                written++;
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to append to media cache journal: {}", e.getMessage());
+        }
+
+        recordsSinceCompaction += written;
+        if (recordsSinceCompaction > COMPACTION_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Snapshots every subreddit changed since the last compaction and truncates the journal.
+     * If the snapshot cannot be written the records are kept for the next attempt, up to
+     * MAX_RETAINED_RECORDS; past that they are dropped so a persistent failure cannot grow
+     * memory and the journal without bound.
+     */
+    public synchronized void compact() {
+        Map<String, List<Entry>> batch = new HashMap<>();
+        try {
+            flush();
+
+            for (String subreddit : changes.keySet()) {
+                changes.computeIfPresent(subreddit, (_, entries) -> {
+                    batch.put(subreddit, List.copyOf(entries));
+                    return entries;
+                });
+            }
+            snapshotWriter.accept(batch);
+            logger.debug("Compacted media cache journal ({} subreddits snapshotted)", batch.size());
+        } catch (Exception e) {
+            int retained = batch.values().stream().mapToInt(List::size).sum();
+            if (retained <= MAX_RETAINED_RECORDS) {
+                logger.warn("Failed to compact media cache journal, keeping {} records for the next attempt: {}",
+                        retained, e.getMessage());
+                return;
+            }
+            logger.warn("Failed to compact media cache journal, dropping {} records that could not be saved: {}",
+                    retained, e.getMessage());
+        }
+
+        // Only drop the batch; records appended meanwhile wait for the next compaction
+        batch.forEach((subreddit, written) -> changes.computeIfPresent(subreddit, (_, entries) -> {
+            entries.subList(0, written.size()).clear();
+            return entries.isEmpty() ? null : entries;
+        }));
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to truncate media cache journal: {}", e.getMessage());
+        }
+        recordsSinceCompaction = 0;
+    }
+
+    /**
+     * Reads every record left in the journal, grouped by subreddit in write order.
+     * Replay is idempotent: re-adding a known id or consuming a missing one is a no-op.
+     */
+    public Map<String, List<Entry>> readAll() {
+        Map<String, List<Entry>> entries = new HashMap<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    Entry entry = objectMapper.readValue(line, Entry.class);
+                    entries.computeIfAbsent(entry.subreddit(), _ -> new ArrayList<>()).add(entry);
+                } catch (IOException e) {
+                    // A torn final line from a crash mid-append; everything before it is intact
+                    logger.warn("Skipping unreadable media cache journal record: {}", e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to read media cache journal: {}", e.getMessage());
+        }
+        return entries;
+    }
+
+    /**
+     * Flushes and compacts outstanding changes, then stops the background scheduler
+     */
+    public void close() {
+        scheduler.shutdownNow();
+        compact();
+    }
+}
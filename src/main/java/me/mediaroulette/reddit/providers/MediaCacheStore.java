@@ -0,0 +1,396 @@
+package me.mediaroulette.reddit.providers;
+
+import me.mediaroulette.reddit.reddit.RedditMedia;
+import me.mediaroulette.reddit.reddit.RedditPost;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Compact binary store for cached Reddit media, read through a memory-mapped file.
+ *
+ * <pre>
+ * header:  int magic, int version, int subredditCount, long indexOffset
+ * blocks:  per subreddit: long refreshedAt, int itemCount, then per item long key, long originKey, int galleryIndex,
+ *          int galleryTotal and six length-prefixed UTF-8 strings
+ *          (imageUrl, imageType, imageContent, title, subreddit, permalink; length -1 for null),
+ *          then int cursorCount and per listing cursor string sort, string after, int page, long startedAt
+ * index:   per subreddit: string name, long blockOffset, int blockLength, long savedAt
+ * </pre>
+ *
+ * Opening the store only decodes the index; warming a subreddit decodes just its own block.
+ * Rewrites copy unchanged blocks byte for byte, re-encode only the subreddits that changed and drop
+ * blocks older than the maximum age. They are written to a temp file without holding the store's
+ * lock, so readers only wait for the new mapping and index to be swapped in.
+ * <p>
+ * Each rewrite is a new generation file ({@code <fileName>.<n>}) instead of a replacement of the mapped one:
+ * Windows refuses to replace or delete a file while it is mapped, and a mapping is only released once its
+ * buffer is garbage collected. Older generations are deleted on a best-effort basis after each rewrite and
+ * on open, so the store works the same on Linux, macOS and Windows; on Windows a superseded generation can
+ * linger on disk until a later rewrite or restart.
+ */
+public class MediaCacheStore {
+    private static final Logger logger = LoggerFactory.getLogger(MediaCacheStore.class);
+
+    private static final int MAGIC = 0x524D4331; // "RMC1"
+    private static final int VERSION = 5;
+    private static final int HEADER_SIZE = Integer.BYTES * 3 + Long.BYTES;
+
+    /**
+     * Everything stored for one subreddit: its queued results, its listing cursors by sort and when it was last refreshed
+     */
+    public record StoredSubreddit(List<RedditMedia> media, Map<String, ListingCursor> cursors, long refreshedAt) {
+        public static final StoredSubreddit EMPTY = new StoredSubreddit(List.of(), Map.of(), 0);
+
+        public boolean isEmpty() {
+            return media.isEmpty() && cursors.isEmpty();
+        }
+    }
+
+    private record Block(long offset, int length, long savedAt) {
+    }
+
+    private record Mapping(MappedByteBuffer buffer, Map<String, Block> index) {
+    }
+
+    // Base name; generations are stored next to it as <name>.<n>
+    private final Path file;
+    private final long maxAge;
+    // Serializes rewrites; never taken while holding this
+    private final Object writeLock = new Object();
+    // Highest generation number on disk; guarded by writeLock
+    private long generation;
+
+    // Guarded by this; only replaced by a writer holding writeLock
+    private MappedByteBuffer mapped;
+    private Map<String, Block> index = new HashMap<>();
+
+    /**
+     * @param maxAge stored results older than this are neither returned nor kept by rewrites
+     */
+    public MediaCacheStore(String fileName, long maxAge) {
+        this.file = Path.of(fileName);
+        this.maxAge = maxAge;
+
+        // The newest readable generation wins; anything newer is left over from a failed rewrite
+        List<Long> generations = generations();
+        long current = 0;
+        for (long candidate : generations) {
+            Mapping mapping = map(generationFile(candidate));
+            if (mapping != null) {
+                mapped = mapping.buffer();
+                index = mapping.index();
+                current = candidate;
+                break;
+            }
+        }
+        generation = generations.isEmpty() ? 0 : generations.getFirst();
+        deleteStaleGenerations(current);
+    }
+
+    /**
+     * Returns what is stored for a subreddit, or {@link StoredSubreddit#EMPTY} if nothing is stored or it has expired
+     */
+    public synchronized StoredSubreddit get(String subreddit) {
+        Block block = index.get(subreddit);
+        if (block == null || System.currentTimeMillis() - block.savedAt() > maxAge) {
+            return StoredSubreddit.EMPTY;
+        }
+
+        try {
+            ByteBuffer in = mapped.slice((int) block.offset(), block.length());
+            long refreshedAt = in.getLong();
+            int count = in.getInt();
+            List<RedditMedia> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long key = in.getLong();
+                long originKey = in.getLong();
+                int galleryIndex = in.getInt();
+                int galleryTotal = in.getInt();
+                String imageUrl = readString(in);
+                String imageType = readString(in);
+                String imageContent = readString(in);
+                String title = readString(in);
+                String subredditName = readString(in);
+                RedditPost post = new RedditPost(title, subredditName != null ? subredditName.intern() : null, readString(in));
+                results.add(new RedditMedia(key, originKey, imageUrl, imageType, imageContent,
+                        post, galleryIndex, galleryTotal));
+            }
+
+            int cursorCount = in.getInt();
+            Map<String, ListingCursor> cursors = new HashMap<>(cursorCount * 2);
+            for (int i = 0; i < cursorCount; i++) {
+                String sort = readString(in);
+                cursors.put(sort, new ListingCursor(readString(in), in.getInt(), in.getLong()));
+            }
+            return new StoredSubreddit(results, cursors, refreshedAt);
+        } catch (RuntimeException e) {
+            logger.warn("Corrupt media cache block for subreddit {}: {}", subreddit, e.getMessage());
+            return StoredSubreddit.EMPTY;
+        }
+    }
+
+    /**
+     * Replaces what is stored for the given subreddits; an empty entry removes the subreddit
+     *
+     * @throws IOException if the store could not be rewritten; it is left as it was
+     */
+    public void putAll(Map<String, StoredSubreddit> changed) throws IOException {
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        synchronized (writeLock) {
+            // Writers are serialized, so the current mapping cannot be replaced while it is copied
+            MappedByteBuffer source;
+            Map<String, Block> sourceIndex;
+            synchronized (this) {
+                source = mapped;
+                sourceIndex = index;
+            }
+
+            // Never the mapped file, so the move below cannot be refused because of a live mapping
+            Path target = generationFile(generation + 1);
+            write(changed, source, sourceIndex, target);
+            generation++;
+            Mapping mapping = map(target);
+            if (mapping == null) {
+                throw new IOException("Rewritten media cache store is unreadable: " + target);
+            }
+
+            synchronized (this) {
+                mapped = mapping.buffer();
+                index = mapping.index();
+            }
+            deleteStaleGenerations(generation);
+        }
+    }
+
+    /**
+     * Writes the new store to a temp file and moves it to the target generation file
+     */
+    private void write(Map<String, StoredSubreddit> changed, MappedByteBuffer source, Map<String, Block> sourceIndex,
+                       Path target) throws IOException {
+        Path tempFile = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Map<String, Block> newIndex = new LinkedHashMap<>();
+            long position = HEADER_SIZE;
+            out.position(position);
+            long now = System.currentTimeMillis();
+
+            // Unchanged subreddits are copied as raw bytes without decoding; expired ones are dropped
+            int expired = 0;
+            for (Map.Entry<String, Block> entry : sourceIndex.entrySet()) {
+                if (changed.containsKey(entry.getKey())) {
+                    continue;
+                }
+                Block block = entry.getValue();
+                if (now - block.savedAt() > maxAge) {
+                    expired++;
+                    continue;
+                }
+                writeFully(out, source.slice((int) block.offset(), block.length()));
+                newIndex.put(entry.getKey(), new Block(position, block.length(), block.savedAt()));
+                position += block.length();
+            }
+
+            for (Map.Entry<String, StoredSubreddit> entry : changed.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    continue;
+                }
+                byte[] block = encodeBlock(entry.getValue());
+                writeFully(out, ByteBuffer.wrap(block));
+                newIndex.put(entry.getKey(), new Block(position, block.length, now));
+                position += block.length;
+            }
+
+            writeFully(out, ByteBuffer.wrap(encodeIndex(newIndex)));
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(newIndex.size())
+                    .putLong(position)
+                    .flip();
+            out.position(0);
+            writeFully(out, header);
+            out.force(false);
+
+            if (expired > 0) {
+                logger.debug("Dropped {} expired subreddits from the media cache store", expired);
+            }
+        }
+
+        try {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    private Path generationFile(long number) {
+        return file.resolveSibling(file.getFileName() + "." + number);
+    }
+
+    /**
+     * Generation numbers present on disk, newest first
+     */
+    private List<Long> generations() {
+        Path directory = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName() + ".";
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path candidate : files) {
+                String suffix = candidate.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    generations.add(Long.parseLong(suffix));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Failed to list media cache store generations: {}", e.getMessage());
+        }
+        generations.sort(Comparator.reverseOrder());
+        return generations;
+    }
+
+    /**
+     * Deletes every generation but the given one, along with the single file written by older versions.
+     * Files that are still mapped cannot be deleted on Windows; they are retried next time.
+     */
+    private void deleteStaleGenerations(long keep) {
+        List<Path> stale = new ArrayList<>();
+        stale.add(file);
+        for (long number : generations()) {
+            if (number != keep) {
+                stale.add(generationFile(number));
+            }
+        }
+        for (Path path : stale) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.debug("Could not delete old media cache store {} yet: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Maps the store file and decodes its index, or returns null if there is no readable store
+     */
+    private static Mapping map(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                logger.warn("Ignoring media cache store with unknown format: {}", file);
+                return null;
+            }
+
+            int count = buffer.getInt(8);
+            ByteBuffer in = buffer.duplicate().position((int) buffer.getLong(12));
+            Map<String, Block> index = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String subreddit = readString(in);
+                index.put(subreddit, new Block(in.getLong(), in.getInt(), in.getLong()));
+            }
+            return new Mapping(buffer, index);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to open media cache store {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] encodeBlock(StoredSubreddit stored) throws IOException {
+        List<RedditMedia> media = stored.media();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(media.size() * 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(stored.refreshedAt());
+        out.writeInt(media.size());
+        for (RedditMedia item : media) {
+            out.writeLong(item.key());
+            out.writeLong(item.originKey());
+            out.writeInt(item.galleryIndex());
+            out.writeInt(item.galleryTotal());
+            writeString(out, item.imageUrl());
+            writeString(out, item.imageType());
+            writeString(out, item.imageContent());
+            writeString(out, item.post().title());
+            writeString(out, item.post().subreddit());
+            writeString(out, item.post().permalink());
+        }
+
+        out.writeInt(stored.cursors().size());
+        for (Map.Entry<String, ListingCursor> entry : stored.cursors().entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue().after());
+            out.writeInt(entry.getValue().page());
+            out.writeLong(entry.getValue().startedAt());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeIndex(Map<String, Block> index) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(index.size() * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Map.Entry<String, Block> entry : index.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeLong(entry.getValue().offset());
+            out.writeInt(entry.getValue().length());
+            out.writeLong(entry.getValue().savedAt());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
@@ -2,63 +2,123 @@ package me.mediaroulette.reddit.providers;
 
 import me.hash.mediaroulette.model.User;
 import me.hash.mediaroulette.model.content.MediaResult;
-import me.hash.mediaroulette.model.content.CachedMediaResult;
 import me.hash.mediaroulette.plugins.Images.ImageSourceProvider;
 import me.hash.mediaroulette.utils.DictionaryIntegration;
 import me.hash.mediaroulette.utils.ErrorReporter;
 import me.hash.mediaroulette.utils.LocalConfig;
-import me.hash.mediaroulette.utils.PersistentCache;
+import me.mediaroulette.reddit.providers.MediaCacheStore.StoredSubreddit;
 import me.mediaroulette.reddit.reddit.RedditClient;
+import me.mediaroulette.reddit.reddit.RedditListingParser;
+import me.mediaroulette.reddit.reddit.RedditMedia;
 import me.mediaroulette.reddit.reddit.RedditPostProcessor;
+import me.mediaroulette.reddit.reddit.RedditRateLimiter.Priority;
+import me.mediaroulette.reddit.reddit.RedditRateLimiter.RequestGroup;
 import me.mediaroulette.reddit.reddit.SubredditManager;
+import me.mediaroulette.reddit.utils.NetworkExecutors;
 import net.dv8tion.jda.api.interactions.Interaction;
 import okhttp3.Response;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import com.fasterxml.jackson.core.type.TypeReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 public class RedditProvider implements ImageSourceProvider {
     private static final Logger logger = LoggerFactory.getLogger(RedditProvider.class);
 
     // Cache and performance constants
-    private static final long CACHE_EXPIRATION_TIME = 10 * 60 * 1000; // 10 minutes
+    // Persisted media older than this is not reloaded; covers subreddits reloaded after idle eviction
+    private static final long PERSISTED_MEDIA_MAX_AGE = 6 * 60 * 60 * 1000; // 6 hours
+    // Most posts requested from one listing; refreshes of quieter subreddits request fewer
     private static final int POST_LIMIT = 50;
+    private static final String[] SORT_METHODS = {"hot", "top", "new"};
     private static final int MAX_RESULTS_PER_SUBREDDIT = 200;
-    private static final int MIN_QUEUE_SIZE = 10;
     private static final int MAX_CONCURRENT_REQUESTS = 3;
-    private static final int EXECUTOR_THREAD_COUNT = 4;
     private static final int REQUEST_TIMEOUT_SECONDS = 30;
+    private static final long PREFETCH_INTERVAL_SECONDS = 15;
+
+    // Subreddits not polled for this long, or beyond the most recently polled N, are moved to the persistent tier
+    private static final long IDLE_EVICTION_MILLIS = 2 * 60 * 60 * 1000; // 2 hours
+    private static final int MAX_ACTIVE_SUBREDDITS = 500;
+    private static final long EVICTION_INTERVAL_MINUTES = 5;
+
+    // Listing cursors walk each subreddit/sort forward page by page, restarting from page one once they age out
+    private static final long CURSOR_MAX_AGE = 60 * 60 * 1000; // 1 hour
+    private static final int CURSOR_MAX_PAGES = 10;
+
+    // Dedupe window: a result is not re-queued while it is among the last N posts queued and under 24 hours old
+    private static final int DEDUPE_WINDOW_POSTS = MAX_RESULTS_PER_SUBREDDIT * 4;
+    private static final long DEDUPE_WINDOW_MILLIS = 24 * 60 * 60 * 1000;
+    private static final double DEDUPE_FALSE_POSITIVE_RATE = 0.001;
+    // Slots in the cross-subreddit index; each result takes up to two (media URL and original post)
+    private static final int GLOBAL_DEDUPE_CAPACITY = 1 << 16;
 
     // In-memory queues for active use
-    private final Map<String, Queue<MediaResult>> imageQueues = new ConcurrentHashMap<>();
+    private final Map<String, CompactMediaQueue> imageQueues = new ConcurrentHashMap<>();
     private final Map<String, Long> lastUpdated = new ConcurrentHashMap<>();
-    private final Map<String, Set<String>> processedPostIds = new ConcurrentHashMap<>();
+    private final Map<String, RotatingBloomFilter> processedPostIds = new ConcurrentHashMap<>();
+    // Queue sizes and refresh intervals follow each subreddit's observed demand
+    private final Map<String, SubredditRefreshPolicy> refreshPolicies = new ConcurrentHashMap<>();
+    private final AtomicLong idleEvictions = new AtomicLong();
+    // Listing cursors by subreddit and sort; saved with the subreddit's block during compaction
+    private final Map<String, Map<String, ListingCursor>> listingCursors = new ConcurrentHashMap<>();
+    // Catches crossposts and reposts of the same media across subreddits
+    private final GlobalMediaIndex globalMediaIndex = new GlobalMediaIndex(GLOBAL_DEDUPE_CAPACITY, DEDUPE_WINDOW_MILLIS);
 
     // Persistent cache for Reddit media results
-    private final PersistentCache<List<CachedMediaResult>> persistentCache =
-            new PersistentCache<>("reddit_media_cache.json", new TypeReference<>() {
-            });
-    private final PersistentCache<Long> timestampCache =
-            new PersistentCache<>("reddit_timestamps.json", new TypeReference<>() {
-            });
-
-    private final ExecutorService executorService = Executors.newFixedThreadPool(EXECUTOR_THREAD_COUNT);
+    private final MediaCacheStore mediaCacheStore = new MediaCacheStore("reddit_media_cache.bin", PERSISTED_MEDIA_MAX_AGE);
+    // Snapshots of evicted subreddits until the compaction that writes them to the store
+    private final Map<String, StoredSubreddit> pendingEvictions = new ConcurrentHashMap<>();
+    // Queue changes are journaled and folded into the persistent cache during background compaction
+    private final MediaCacheJournal mediaCacheJournal =
+            new MediaCacheJournal("reddit_media_journal.jsonl", this::saveToPersistentCache);
+
+    // Virtual thread per task by default: parse stages block on response bodies and cache writes block on disk
+    private final ExecutorService executorService = NetworkExecutors.create("reddit-provider");
+
+    // Background prefetching keeps queues above the low watermark off the request path
+    private final ScheduledExecutorService prefetchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reddit-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Single-flight refreshes: concurrent callers for the same subreddit join one pending future
+    private final Map<String, PendingRefresh> inFlightRefreshes = new ConcurrentHashMap<>();
 
     private final RedditClient redditClient;
     private final SubredditManager subredditManager;
     private final RedditPostProcessor postProcessor;
+    private final RedditListingParser listingParser = new RedditListingParser();
+
+    /**
+     * Results of one listing page and the cursor to continue from once they are queued
+     */
+    private record ListingPage(String sortMethod, ListingCursor next, List<RedditMedia> media) {
+    }
+
+    /**
+     * A refresh in flight and the rate limiter group its listing requests are sent in
+     */
+    private record PendingRefresh(CompletableFuture<Void> future, RequestGroup requests) {
+    }
 
     public RedditProvider(RedditClient redditClient, SubredditManager subredditManager) {
         this.redditClient = redditClient;
         this.subredditManager = subredditManager;
         this.postProcessor = new RedditPostProcessor();
 
+        recoverFromJournal();
+
+        prefetchScheduler.scheduleWithFixedDelay(this::prefetchLowQueues,
+                PREFETCH_INTERVAL_SECONDS, PREFETCH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        prefetchScheduler.scheduleWithFixedDelay(this::evictIdleSubreddits,
+                EVICTION_INTERVAL_MINUTES, EVICTION_INTERVAL_MINUTES, TimeUnit.MINUTES);
+
         // Add shutdown hook to ensure cleanup
         Runtime.getRuntime().addShutdownHook(new Thread(this::cleanup));
     }
@@ -102,202 +162,469 @@ public class RedditProvider implements ImageSourceProvider {
             }
         }
 
-        ensureCacheReady(subreddit);
+        refreshPolicy(subreddit).recordPoll();
+        CompactMediaQueue queue = ensureCacheReady(subreddit);
+        RedditMedia media = queue.poll();
 
-        Queue<MediaResult> queue = imageQueues.get(subreddit);
-        MediaResult result = queue.poll();
-
-        if (result == null) {
+        if (media == null) {
             logger.warn("No images available for subreddit {} after cache refresh", subreddit);
             ErrorReporter.reportProviderError("reddit", "empty queue", "No images available for subreddit: " + subreddit, userId);
             throw new IOException("No images available for subreddit: " + subreddit);
         }
 
-        // Update persistent cache asynchronously to avoid blocking
-        String finalSubreddit = subreddit;
-        CompletableFuture.runAsync(() -> saveToPersistentCache(finalSubreddit, queue), executorService);
+        // Refill in the background once the queue drops below the low watermark
+        if (queue.size() < refreshPolicy(subreddit).lowWatermark()) {
+            schedulePrefetch(subreddit);
+        }
+
+        // Journal the consumption; the snapshot is rewritten during compaction, not per request
+        mediaCacheJournal.recordConsume(subreddit, media.key());
 
-        return result;
+        return media.toMediaResult();
     }
 
     /**
-     * Ensures the cache is ready for the given subreddit, initializing and refreshing as needed
+     * Ensures the cache is ready for the given subreddit, initializing and refreshing as needed.
+     * Only blocks when the queue is completely empty; otherwise stale or low queues are refilled in the background.
+     *
+     * @return the subreddit's queue
      */
-    private void ensureCacheReady(String subreddit) {
-        // Initialize data structures if needed
-        imageQueues.computeIfAbsent(subreddit, _ -> new ConcurrentLinkedQueue<>());
-        processedPostIds.computeIfAbsent(subreddit, _ -> ConcurrentHashMap.newKeySet());
-
-        // Load from persistent cache if available and not already loaded
-        if (!lastUpdated.containsKey(subreddit)) {
-            loadFromPersistentCache(subreddit);
+    private CompactMediaQueue ensureCacheReady(String subreddit) {
+        // Created and warmed from the persistent cache in one step, so no caller sees a half-loaded queue
+        CompactMediaQueue queue = imageQueues.computeIfAbsent(subreddit, this::loadFromPersistentCache);
+
+        if (queue.isEmpty()) {
+            refreshCache(subreddit, Priority.INTERACTIVE).join();
+        } else if (needsRefresh(subreddit)) {
+            schedulePrefetch(subreddit);
         }
+        return queue;
+    }
 
-        // Check if refresh is needed
-        Queue<MediaResult> imageQueue = imageQueues.get(subreddit);
-        long lastUpdateTime = lastUpdated.getOrDefault(subreddit, 0L);
-        boolean needsRefresh = imageQueue.size() < MIN_QUEUE_SIZE ||
-                System.currentTimeMillis() - lastUpdateTime > CACHE_EXPIRATION_TIME;
+    private SubredditRefreshPolicy refreshPolicy(String subreddit) {
+        return refreshPolicies.computeIfAbsent(subreddit, _ -> new SubredditRefreshPolicy(MAX_RESULTS_PER_SUBREDDIT));
+    }
 
-        if (needsRefresh) {
-            refreshCache(subreddit);
+    private boolean needsRefresh(String subreddit) {
+        CompactMediaQueue imageQueue = imageQueues.get(subreddit);
+        SubredditRefreshPolicy policy = refreshPolicy(subreddit);
+        long lastUpdateTime = lastUpdated.getOrDefault(subreddit, 0L);
+        if (imageQueue == null || imageQueue.size() < policy.lowWatermark()) {
+            return true;
         }
+        // A queue at its target has no room for what an interval refresh would fetch
+        return imageQueue.size() < policy.targetSize()
+                && System.currentTimeMillis() - lastUpdateTime > policy.refreshInterval();
     }
 
-    private void loadFromPersistentCache(String subreddit) {
-        Long cachedTimestamp = timestampCache.get(subreddit);
-        if (cachedTimestamp != null) {
-            lastUpdated.put(subreddit, cachedTimestamp);
+    /**
+     * Periodic scan that refills any queue below the low watermark or past its refresh interval,
+     * and trims queues of subreddits that have cooled down back to their target size
+     */
+    private void prefetchLowQueues() {
+        try {
+            for (String subreddit : imageQueues.keySet()) {
+                trimToTarget(subreddit);
+                if (needsRefresh(subreddit)) {
+                    schedulePrefetch(subreddit);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Error during background prefetch scan: {}", e.getMessage());
+        }
+    }
 
-            List<CachedMediaResult> cachedResults = persistentCache.get(subreddit);
-            if (cachedResults != null && !cachedResults.isEmpty()) {
-                Queue<MediaResult> queue = imageQueues.get(subreddit);
-                cachedResults.stream()
-                        .filter(cached -> cached.isValid(CACHE_EXPIRATION_TIME))
-                        .map(CachedMediaResult::toMediaResult)
-                        .forEach(queue::offer);
+    private void trimToTarget(String subreddit) {
+        CompactMediaQueue queue = imageQueues.get(subreddit);
+        if (queue == null) {
+            return;
+        }
+        int excess = queue.size() - refreshPolicy(subreddit).targetSize();
+        for (int i = 0; i < excess; i++) {
+            RedditMedia media = queue.poll();
+            if (media == null) {
+                break;
             }
-        } else {
-            lastUpdated.put(subreddit, 0L);
+            mediaCacheJournal.recordConsume(subreddit, media.key());
+        }
+        if (excess > 0) {
+            logger.debug("Trimmed {} results from cooled down subreddit: {}", excess, subreddit);
         }
     }
 
-    private void refreshCache(String subreddit) {
-        updateImageQueue(subreddit);
-        long currentTime = System.currentTimeMillis();
-        lastUpdated.put(subreddit, currentTime);
-        timestampCache.put(subreddit, currentTime);
+    /**
+     * Moves subreddits that have gone idle, or that fall outside the most recently polled
+     * MAX_ACTIVE_SUBREDDITS, to the persistent tier and drops their queues, dedupe state and cursors.
+     * They are reloaded from the store on the next request; the global index still remembers what they served.
+     */
+    private void evictIdleSubreddits() {
+        try {
+            long now = System.currentTimeMillis();
+            List<Map.Entry<String, SubredditRefreshPolicy>> byLastPoll = refreshPolicies.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> -entry.getValue().lastPollAt()))
+                    .toList();
+
+            List<String> evicted = new ArrayList<>();
+            for (int i = 0; i < byLastPoll.size(); i++) {
+                String subreddit = byLastPoll.get(i).getKey();
+                SubredditRefreshPolicy policy = byLastPoll.get(i).getValue();
+                long lastPollAt = policy.lastPollAt();
+                if (i < MAX_ACTIVE_SUBREDDITS && now - lastPollAt <= IDLE_EVICTION_MILLIS) {
+                    continue;
+                }
+
+                // The queue is removed first and the removed instance snapshotted, atomically with respect to
+                // reloads. Requests that already held it journal their polls, which compaction applies on top.
+                imageQueues.computeIfPresent(subreddit, (_, queue) -> {
+                    if (policy.lastPollAt() != lastPollAt || inFlightRefreshes.containsKey(subreddit)) {
+                        // Polled or refreshing since the scan
+                        return queue;
+                    }
+                    Map<String, ListingCursor> cursors = listingCursors.getOrDefault(subreddit, Map.of());
+                    pendingEvictions.put(subreddit, new StoredSubreddit(queue.snapshot(), Map.copyOf(cursors),
+                            lastUpdated.getOrDefault(subreddit, 0L)));
+                    lastUpdated.remove(subreddit);
+                    processedPostIds.remove(subreddit);
+                    listingCursors.remove(subreddit);
+                    evicted.add(subreddit);
+                    return null;
+                });
+
+                // Also drops policies left behind for subreddits that were already gone
+                if (!imageQueues.containsKey(subreddit)) {
+                    refreshPolicies.remove(subreddit, policy);
+                }
+            }
+            if (evicted.isEmpty()) {
+                return;
+            }
+
+            evicted.forEach(mediaCacheJournal::markChanged);
+            mediaCacheJournal.compact();
+            idleEvictions.addAndGet(evicted.size());
+            logger.debug("Evicted {} idle subreddits to the persistent cache", evicted.size());
+        } catch (Exception e) {
+            logger.warn("Error during idle subreddit eviction: {}", e.getMessage());
+        }
     }
 
-    private void updateImageQueue(String subreddit) {
-        String[] sortMethods = {"hot", "top", "new"};
+    /**
+     * Starts an asynchronous refresh for the subreddit unless one is already pending
+     */
+    private void schedulePrefetch(String subreddit) {
+        if (inFlightRefreshes.containsKey(subreddit)) {
+            return;
+        }
 
-        // Limit concurrent requests to avoid overwhelming Reddit API
-        List<CompletableFuture<List<MediaResult>>> futures = Arrays.stream(sortMethods)
-                .limit(MAX_CONCURRENT_REQUESTS)
-                .map(sortMethod -> CompletableFuture.supplyAsync(() ->
-                        fetchImagesFromSubredditSafely(subreddit, sortMethod), executorService))
-                .toList();
+        refreshCache(subreddit, Priority.PREFETCH);
+        logger.debug("Scheduled background prefetch for subreddit: {}", subreddit);
+    }
 
-        // Wait for all requests to complete with timeout
+    /**
+     * Folds records left in the journal by an unclean shutdown into the persistent cache
+     */
+    private void recoverFromJournal() {
+        Map<String, List<MediaCacheJournal.Entry>> journal = mediaCacheJournal.readAll();
+        if (journal.isEmpty()) {
+            return;
+        }
+
+        Map<String, StoredSubreddit> recovered = new HashMap<>();
+        journal.forEach((subreddit, entries) -> recovered.put(subreddit, replay(mediaCacheStore.get(subreddit), entries)));
         try {
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                    .get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-        } catch (TimeoutException e) {
-            logger.warn("Timeout waiting for Reddit API requests for subreddit: {}", subreddit);
-            // Cancel any remaining futures
-            futures.forEach(future -> future.cancel(true));
-        } catch (InterruptedException | ExecutionException e) {
-            logger.error("Error waiting for Reddit API requests: {}", e.getMessage());
-            Thread.currentThread().interrupt();
+            mediaCacheStore.putAll(recovered);
+        } catch (IOException e) {
+            // Keep the journal so the next start can try again
+            logger.warn("Failed to recover media cache journal: {}", e.getMessage());
+            return;
         }
 
-        // Collect and process results
-        List<MediaResult> allNewResults = futures.stream()
-                .map(this::getFutureResultSafely)
-                .flatMap(List::stream)
-                .toList();
+        mediaCacheJournal.compact();
+        logger.info("Recovered media cache journal for {} subreddits", journal.size());
+    }
 
-        if (allNewResults.isEmpty()) {
-            logger.warn("No valid images found for subreddit: {}", subreddit);
-            return;
+    /**
+     * Applies journaled adds and consumes, in order, to what is stored for a subreddit
+     */
+    private static StoredSubreddit replay(StoredSubreddit stored, List<MediaCacheJournal.Entry> entries) {
+        if (entries.isEmpty()) {
+            return stored;
+        }
+
+        Map<Long, RedditMedia> results = new LinkedHashMap<>();
+        stored.media().forEach(cached -> results.put(cached.key(), cached));
+        for (MediaCacheJournal.Entry entry : entries) {
+            switch (entry.operation()) {
+                case ADD -> results.putIfAbsent(entry.id(), entry.media());
+                case CONSUME -> results.remove(entry.id());
+            }
+        }
+        return new StoredSubreddit(new ArrayList<>(results.values()), stored.cursors(), stored.refreshedAt());
+    }
+
+    /**
+     * Creates a subreddit's queue, dedupe filter and cursors from what was persisted for it.
+     * Runs inside {@code imageQueues.computeIfAbsent}, so it cannot interleave with the subreddit's eviction.
+     */
+    private CompactMediaQueue loadFromPersistentCache(String subreddit) {
+        CompactMediaQueue queue = new CompactMediaQueue(MAX_RESULTS_PER_SUBREDDIT);
+        RotatingBloomFilter processedIds = new RotatingBloomFilter(
+                DEDUPE_WINDOW_POSTS, DEDUPE_WINDOW_MILLIS, DEDUPE_FALSE_POSITIVE_RATE);
+
+        // A recent eviction may not have reached the store yet, and neither may polls journaled since
+        StoredSubreddit stored = pendingEvictions.get(subreddit);
+        if (stored == null) {
+            // Only decodes this subreddit's block of the mapped store
+            stored = mediaCacheStore.get(subreddit);
+        }
+        stored = replay(stored, mediaCacheJournal.pendingChanges(subreddit));
+
+        // Cached posts are marked as seen so the next refresh does not queue them twice
+        for (RedditMedia media : stored.media()) {
+            processedIds.put(media.key());
+            globalMediaIndex.markIfNew(RedditMedia.urlKey(media.imageUrl()), media.originKey());
+            queue.offer(media);
         }
 
-        // Shuffle for variety and add to queue
-        List<MediaResult> shuffledResults = new ArrayList<>(allNewResults);
-        Collections.shuffle(shuffledResults);
-        addResultsToQueue(subreddit, shuffledResults);
+        processedPostIds.put(subreddit, processedIds);
+        listingCursors.put(subreddit, new ConcurrentHashMap<>(stored.cursors()));
+        lastUpdated.put(subreddit, stored.refreshedAt());
+        return queue;
     }
 
-    private List<MediaResult> fetchImagesFromSubredditSafely(String subreddit, String sortMethod) {
+    /**
+     * Refreshes the subreddit's queue, joining the pending refresh if one is already in flight.
+     * A caller joining a less urgent refresh promotes it, so a user waiting on an empty queue is not
+     * held behind the prefetch reserve and pacing.
+     */
+    private CompletableFuture<Void> refreshCache(String subreddit, Priority priority) {
+        PendingRefresh pending = inFlightRefreshes.get(subreddit);
+        if (pending != null) {
+            redditClient.promote(pending.requests(), priority);
+            return pending.future();
+        }
+
+        PendingRefresh refresh = new PendingRefresh(new CompletableFuture<>(), new RequestGroup(priority));
+        pending = inFlightRefreshes.putIfAbsent(subreddit, refresh);
+        if (pending != null) {
+            redditClient.promote(pending.requests(), priority);
+            return pending.future();
+        }
+
         try {
-            return fetchImagesFromSubreddit(subreddit, sortMethod);
-        } catch (IOException | InterruptedException | ExecutionException e) {
-            logger.error("Error fetching images for subreddit {} with sort {}: {}",
-                    subreddit, sortMethod, e.getMessage());
-            if (e instanceof InterruptedException) {
-                Thread.currentThread().interrupt();
+            startRefresh(subreddit, refresh.requests()).whenComplete((_, e) -> {
+                inFlightRefreshes.remove(subreddit, refresh);
+                if (e != null) {
+                    refresh.future().completeExceptionally(e);
+                } else {
+                    refresh.future().complete(null);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlightRefreshes.remove(subreddit, refresh);
+            refresh.future().completeExceptionally(e);
+        }
+        return refresh.future();
+    }
+
+    private CompletableFuture<Void> startRefresh(String subreddit, RequestGroup requests) {
+        return updateImageQueue(subreddit, requests).thenRun(() -> {
+            // Not recreated for a subreddit evicted while the refresh ran; persisted with it at the next compaction
+            if (lastUpdated.computeIfPresent(subreddit, (_, _) -> System.currentTimeMillis()) != null) {
+                mediaCacheJournal.markChanged(subreddit);
             }
-            return Collections.emptyList();
+        });
+    }
+
+    private CompletableFuture<Void> updateImageQueue(String subreddit, RequestGroup requests) {
+        // Fetch only what the queue is missing from its target; limit concurrent requests to avoid overwhelming Reddit API
+        CompactMediaQueue queue = imageQueues.get(subreddit);
+        int queued = queue != null ? queue.size() : 0;
+        SubredditRefreshPolicy policy = refreshPolicy(subreddit);
+        if (queued >= policy.targetSize()) {
+            // Filled up since the refresh was scheduled; nothing fetched now could be queued
+            return CompletableFuture.completedFuture(null);
         }
+        SubredditRefreshPolicy.FetchPlan plan = policy.fetchPlan(queued,
+                Math.min(SORT_METHODS.length, MAX_CONCURRENT_REQUESTS), POST_LIMIT);
+
+        // Start from a random sort so subreddits reading a single listing still cycle through all of them
+        int firstSort = ThreadLocalRandom.current().nextInt(SORT_METHODS.length);
+        List<CompletableFuture<ListingPage>> futures = IntStream.range(0, plan.listings())
+                .mapToObj(i -> SORT_METHODS[(firstSort + i) % SORT_METHODS.length])
+                .map(sortMethod -> fetchImagesFromSubreddit(subreddit, sortMethod, plan.limit(), requests))
+                .toList();
+
+        // Wait for all requests to complete with timeout, without holding a thread while waiting
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .completeOnTimeout(null, REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .handle((_, _) -> {
+                    if (futures.stream().anyMatch(future -> !future.isDone())) {
+                        logger.warn("Timeout waiting for Reddit API requests for subreddit: {}", subreddit);
+                        // Cancel any remaining futures; their pages are dropped and their cursors stay put
+                        futures.forEach(future -> future.cancel(true));
+                    }
+
+                    // Collect and process results
+                    List<ListingPage> pages = futures.stream()
+                            .map(this::getFutureResultSafely)
+                            .filter(Objects::nonNull)
+                            .toList();
+
+                    if (pages.isEmpty()) {
+                        // Every listing failed or timed out; that says nothing about the subreddit's yield
+                        logger.warn("No listings could be read for subreddit: {}", subreddit);
+                        return null;
+                    }
+
+                    if (pages.stream().allMatch(page -> page.media().isEmpty())) {
+                        logger.warn("No valid images found for subreddit: {}", subreddit);
+                        advanceCursors(subreddit, pages);
+                        policy.recordRefresh(0);
+                        return null;
+                    }
+
+                    policy.recordRefresh(addResultsToQueue(subreddit, pages));
+                    return null;
+                });
     }
 
-    private List<MediaResult> getFutureResultSafely(CompletableFuture<List<MediaResult>> future) {
+    private ListingPage getFutureResultSafely(CompletableFuture<ListingPage> future) {
         try {
-            return future.get();
-        } catch (InterruptedException | ExecutionException e) {
+            return future.getNow(null);
+        } catch (CancellationException | CompletionException e) {
             logger.error("Error getting future result: {}", e.getMessage());
-            if (e instanceof InterruptedException) {
-                Thread.currentThread().interrupt();
-            }
-            return Collections.emptyList();
+            return null;
         }
     }
 
-    private void addResultsToQueue(String subreddit, List<MediaResult> results) {
-        Queue<MediaResult> queue = imageQueues.get(subreddit);
-        Set<String> processedIds = processedPostIds.get(subreddit);
+    /**
+     * Adds the pages' results in random order until the queue reaches its target size, then moves
+     * the cursor past every page whose results all made it in. A page cut off by the target is read
+     * again next time; the results already queued from it are caught by the dedupe filters.
+     *
+     * @return number of results added
+     */
+    private int addResultsToQueue(String subreddit, List<ListingPage> pages) {
+        CompactMediaQueue queue = imageQueues.get(subreddit);
+        RotatingBloomFilter processedIds = processedPostIds.get(subreddit);
+        if (queue == null || processedIds == null) {
+            // Evicted while the refresh was running
+            return 0;
+        }
+        int targetSize = refreshPolicy(subreddit).targetSize();
+
+        // Shuffle for variety across sorts, remembering which page each result came from
+        Map<RedditMedia, ListingPage> pageOf = new IdentityHashMap<>();
+        List<RedditMedia> results = new ArrayList<>();
+        for (ListingPage page : pages) {
+            for (RedditMedia media : page.media()) {
+                pageOf.put(media, page);
+                results.add(media);
+            }
+        }
+        Collections.shuffle(results);
 
+        Set<ListingPage> cutOff = Collections.newSetFromMap(new IdentityHashMap<>());
         int addedCount = 0;
-        for (MediaResult result : results) {
-            if (queue.size() >= MAX_RESULTS_PER_SUBREDDIT) {
-                break;
+        for (RedditMedia media : results) {
+            if (queue.size() >= targetSize) {
+                cutOff.add(pageOf.get(media));
+                continue;
             }
 
-            String resultId = generateResultId(result);
-            if (!processedIds.contains(resultId)) {
-                queue.offer(result);
-                processedIds.add(resultId);
+            if (processedIds.put(media.key())
+                    && globalMediaIndex.markIfNew(RedditMedia.urlKey(media.imageUrl()), media.originKey())) {
+                queue.offer(media);
+                mediaCacheJournal.recordAdd(subreddit, media);
                 addedCount++;
             }
         }
 
+        advanceCursors(subreddit, pages.stream().filter(page -> !cutOff.contains(page)).toList());
         logger.debug("Added {} new results to queue for subreddit: {}", addedCount, subreddit);
-
-        // Clean up processed IDs if set gets too large
-        if (processedIds.size() > MAX_RESULTS_PER_SUBREDDIT * 2) {
-            processedIds.clear();
-            logger.debug("Cleared processed IDs cache for subreddit: {}", subreddit);
-        }
-
-        // Save to persistent cache asynchronously
-        CompletableFuture.runAsync(() -> saveToPersistentCache(subreddit, queue), executorService);
+        return addedCount;
     }
 
-    private List<MediaResult> fetchImagesFromSubreddit(String subreddit, String sortMethod)
-            throws IOException, ExecutionException, InterruptedException {
-        String accessToken = redditClient.getAccessToken();
+    /**
+     * Fetches one listing as a chain of stages; no thread is held while waiting on the token or the network
+     */
+    private CompletableFuture<ListingPage> fetchImagesFromSubreddit(String subreddit, String sortMethod, int limit,
+                                                                    RequestGroup requests) {
         String timeParam = "top".equals(sortMethod) ? "&t=week" : "";
-        String url = String.format("https://oauth.reddit.com/r/%s/%s?limit=%d%s",
-                subreddit, sortMethod, POST_LIMIT, timeParam);
+        ListingCursor cursor = currentCursor(subreddit, sortMethod);
+        String afterParam = cursor != null ? "&after=" + cursor.after() : "";
+        // raw_json=1 stops Reddit from HTML-escaping URLs in the listing
+        String url = String.format("https://oauth.reddit.com/r/%s/%s?limit=%d&raw_json=1%s%s",
+                subreddit, sortMethod, limit, timeParam, afterParam);
+
+        return redditClient.getAccessTokenAsync()
+                .thenCompose(accessToken -> redditClient.sendGetRequestAsync(url, accessToken, requests))
+                .thenApplyAsync(response -> processListingResponse(subreddit, sortMethod, cursor, response), executorService)
+                .exceptionally(e -> {
+                    logger.error("Error fetching images for subreddit {} with sort {}: {}",
+                            subreddit, sortMethod, e.getMessage());
+                    return null;
+                });
+    }
 
-        try (Response response = redditClient.sendGetRequestAsync(url, accessToken).get()) {
+    /**
+     * @return the page's results and next cursor, or null if the page could not be read
+     */
+    private ListingPage processListingResponse(String subreddit, String sortMethod, ListingCursor cursor, Response response) {
+        try (response) {
             if (!response.isSuccessful()) {
                 logger.warn("Failed to fetch posts for subreddit: {} with sort: {} (HTTP {})",
                         subreddit, sortMethod, response.code());
-                return Collections.emptyList();
+                return null;
             }
 
-            String responseBody = response.body().string();
-            JSONObject json = new JSONObject(responseBody);
+            // Stream the body straight from the connection, keeping only the fields the processor reads
+            RedditListingParser.Listing listing = listingParser.parse(response.body().byteStream());
 
-            if (json.has("error")) {
-                logger.warn("Reddit API error for {}/{}: {}", subreddit, sortMethod, json.getString("error"));
-                return Collections.emptyList();
+            if (listing.hasError()) {
+                logger.warn("Reddit API error for {}/{}: {}", subreddit, sortMethod, listing.error());
+                return null;
             }
 
-            JSONArray posts = json.getJSONObject("data").getJSONArray("children");
-            return postProcessor.processPosts(posts);
+            return new ListingPage(sortMethod, nextCursor(cursor, listing), postProcessor.processPosts(listing.posts()));
 
         } catch (Exception e) {
             logger.error("Error processing Reddit response for {}/{}: {}", subreddit, sortMethod, e.getMessage());
-            return Collections.emptyList();
+            return null;
+        }
+    }
+
+    /**
+     * Returns the cursor to continue from, or null to start again from the first page
+     */
+    private ListingCursor currentCursor(String subreddit, String sortMethod) {
+        Map<String, ListingCursor> cursors = listingCursors.get(subreddit);
+        ListingCursor cursor = cursors != null ? cursors.get(sortMethod) : null;
+        if (cursor == null || cursor.after() == null || cursor.page() >= CURSOR_MAX_PAGES
+                || System.currentTimeMillis() - cursor.startedAt() > CURSOR_MAX_AGE) {
+            return null;
         }
+        return cursor;
     }
 
-    private String generateResultId(MediaResult result) {
-        // Create a simple ID based on URL and title to avoid duplicates
-        return (result.getImageUrl() + "|" + result.getTitle()).hashCode() + "";
+    private static ListingCursor nextCursor(ListingCursor cursor, RedditListingParser.Listing listing) {
+        // A missing after token or an empty page means the end of the listing; the next refresh starts over
+        String after = listing.posts().isEmpty() ? null : listing.after();
+        return cursor == null
+                ? new ListingCursor(after, 1, System.currentTimeMillis())
+                : new ListingCursor(after, cursor.page() + 1, cursor.startedAt());
+    }
+
+    private void advanceCursors(String subreddit, List<ListingPage> pages) {
+        // Absent once the subreddit is evicted
+        Map<String, ListingCursor> cursors = listingCursors.get(subreddit);
+        if (pages.isEmpty() || cursors == null) {
+            return;
+        }
+        pages.forEach(page -> cursors.put(page.sortMethod(), page.next()));
+        // Persisted with the subreddit at the next compaction
+        mediaCacheJournal.markChanged(subreddit);
     }
 
     @Override
@@ -349,17 +676,38 @@ public class RedditProvider implements ImageSourceProvider {
     }
 
     /**
-     * Saves current queue to persistent cache for later retrieval
+     * Saves the given subreddits to the persistent cache; called by journal compaction with each one's
+     * records since the last compaction. Resident subreddits are saved from their queue. Evicted ones get
+     * those records applied to their stored snapshot, covering polls by requests that still held the old queue.
      */
-    private void saveToPersistentCache(String subreddit, Queue<MediaResult> queue) {
+    private void saveToPersistentCache(Map<String, List<MediaCacheJournal.Entry>> changes) {
+        Map<String, StoredSubreddit> snapshots = new HashMap<>();
+        Map<String, StoredSubreddit> staged = new HashMap<>();
+        changes.forEach((subreddit, entries) -> {
+            // Includes subreddits reloaded before the compaction their eviction triggered; the queue supersedes it
+            StoredSubreddit evicted = pendingEvictions.get(subreddit);
+            if (evicted != null) {
+                staged.put(subreddit, evicted);
+            }
+
+            CompactMediaQueue queue = imageQueues.get(subreddit);
+            if (queue != null) {
+                Map<String, ListingCursor> cursors = listingCursors.getOrDefault(subreddit, Map.of());
+                snapshots.put(subreddit, new StoredSubreddit(queue.snapshot(), Map.copyOf(cursors),
+                        lastUpdated.getOrDefault(subreddit, 0L)));
+                return;
+            }
+            snapshots.put(subreddit, replay(evicted != null ? evicted : mediaCacheStore.get(subreddit), entries));
+        });
+
         try {
-            List<CachedMediaResult> cachedResults = queue.stream()
-                    .map(CachedMediaResult::new)
-                    .toList();
-            persistentCache.put(subreddit, cachedResults);
-        } catch (Exception e) {
-            logger.warn("Failed to save cache for subreddit {}: {}", subreddit, e.getMessage());
+            mediaCacheStore.putAll(snapshots);
+        } catch (IOException e) {
+            // Fails the compaction, which keeps the journal and these changes for the next attempt
+            throw new UncheckedIOException("Failed to save cache for subreddits " + snapshots.keySet(), e);
         }
+        // Now covered by the store, unless the subreddit was evicted again meanwhile
+        staged.forEach(pendingEvictions::remove);
     }
 
     /**
@@ -368,14 +716,22 @@ public class RedditProvider implements ImageSourceProvider {
     public void cleanup() {
         logger.info("Cleaning up RedditProvider resources...");
 
-        // Save all current caches before shutdown
-        imageQueues.entrySet().parallelStream()
-                .forEach(entry -> saveToPersistentCache(entry.getKey(), entry.getValue()));
+        // Flush and compact outstanding queue changes before shutdown
+        mediaCacheJournal.close();
 
         // Clear in-memory caches
         imageQueues.clear();
         lastUpdated.clear();
         processedPostIds.clear();
+        refreshPolicies.clear();
+        listingCursors.clear();
+        pendingEvictions.clear();
+
+        // Stop background prefetching before the executor it feeds
+        prefetchScheduler.shutdownNow();
+        inFlightRefreshes.clear();
+        subredditManager.shutdown();
+        redditClient.shutdown();
 
         // Shutdown executor service gracefully
         executorService.shutdown();
@@ -403,8 +759,19 @@ public class RedditProvider implements ImageSourceProvider {
     public Map<String, Object> getCacheStats() {
         Map<String, Object> stats = new HashMap<>();
         stats.put("cached_subreddits", imageQueues.size());
-        stats.put("total_cached_images", imageQueues.values().stream().mapToInt(Queue::size).sum());
-        stats.put("persistent_cache_size", persistentCache.size());
+        stats.put("total_cached_images", imageQueues.values().stream().mapToInt(CompactMediaQueue::size).sum());
+        stats.put("persistent_cache_size", mediaCacheStore.size());
+        stats.put("global_dedupe", globalMediaIndex.getStats());
+        stats.put("idle_evictions", idleEvictions.get());
+        stats.put("estimated_queue_bytes", imageQueues.values().stream()
+                .mapToLong(CompactMediaQueue::memoryBytes)
+                .sum());
+        stats.put("estimated_dedupe_bytes", processedPostIds.values().stream()
+                .mapToLong(RotatingBloomFilter::memoryBytes)
+                .sum());
+        stats.put("subreddit_existence_cache", subredditManager.getCacheStats());
+        stats.put("rate_limit", redditClient.getRateLimitStats());
+        stats.put("connection_pool", redditClient.getConnectionPoolStats());
         return stats;
     }
 }
\ No newline at end of file
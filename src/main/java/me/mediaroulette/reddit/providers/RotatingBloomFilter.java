@@ -0,0 +1,116 @@
+package me.mediaroulette.reddit.providers;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-memory dedupe filter over a sliding window of recently seen keys.
+ * Keys go into the current generation of a pair of Bloom filters and are checked against both.
+ * Once the current generation holds a whole window of keys (or the window's time has passed) it
+ * becomes the previous generation and the old previous one is dropped. A key therefore stays until a
+ * full window of newer keys has been added or the window's time has passed after its generation ended,
+ * between one and two windows in all, and entries never age out all at once.
+ */
+public class RotatingBloomFilter {
+
+    private final int generationCapacity;
+    private final long generationMaxAgeMillis;
+    private final int bitCount;
+    private final int hashCount;
+
+    // Guarded by this
+    private long[] current;
+    private long[] previous;
+    private int currentInsertions;
+    private long currentStartedAt;
+
+    /**
+     * @param windowSize        a key is remembered at least until this many newer keys have been added
+     * @param windowMillis      a key is remembered at least this long, unless the size limit is reached first;
+     *                          0 for a count-only window
+     * @param falsePositiveRate chance that a key outside the window is reported as seen
+     */
+    public RotatingBloomFilter(int windowSize, long windowMillis, double falsePositiveRate) {
+        this.generationCapacity = Math.max(1, windowSize);
+        this.generationMaxAgeMillis = windowMillis;
+
+        // Two generations are checked, so each gets half of the false positive budget
+        double generationRate = falsePositiveRate / 2;
+        double ln2 = Math.log(2);
+        this.bitCount = (int) Math.max(64, Math.ceil(-generationCapacity * Math.log(generationRate) / (ln2 * ln2)));
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / generationCapacity * ln2));
+
+        this.current = new long[(bitCount + 63) >>> 6];
+        this.previous = new long[current.length];
+        this.currentStartedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Adds the key to the window
+     *
+     * @return true if the key was not already (probably) present
+     */
+    public synchronized boolean put(long key) {
+        rotateIfExpired();
+        long hash1 = mix(key);
+        long hash2 = mix(hash1);
+        if (contains(current, hash1, hash2) || contains(previous, hash1, hash2)) {
+            return false;
+        }
+
+        if (currentInsertions >= generationCapacity) {
+            rotate();
+        }
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(hash1, hash2, i);
+            current[bit >>> 6] |= 1L << bit;
+        }
+        currentInsertions++;
+        return true;
+    }
+
+    /**
+     * Heap used by the bit arrays
+     */
+    public long memoryBytes() {
+        return (long) current.length * Long.BYTES * 2;
+    }
+
+    private boolean contains(long[] bits, long hash1, long hash2) {
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(hash1, hash2, i);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(long hash1, long hash2, int i) {
+        return (int) Math.floorMod(hash1 + i * hash2, (long) bitCount);
+    }
+
+    private void rotateIfExpired() {
+        if (generationMaxAgeMillis > 0 && System.currentTimeMillis() - currentStartedAt > generationMaxAgeMillis) {
+            rotate();
+        }
+    }
+
+    private void rotate() {
+        long[] recycled = previous;
+        Arrays.fill(recycled, 0L);
+        previous = current;
+        current = recycled;
+        currentInsertions = 0;
+        currentStartedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * SplitMix64 finalizer; spreads sequential or low-entropy keys across the whole 64-bit range
+     */
+    private static long mix(long key) {
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,117 @@
+package me.mediaroulette.reddit.providers;
+
+/**
+ * Queue sizing and refresh timing for one subreddit, derived from how often it is polled and how
+ * many new results each refresh yields. Polls are tracked as an exponentially decayed count, so
+ * the rate follows recent demand and a subreddit nobody asks for cools down on its own.
+ */
+public class SubredditRefreshPolicy {
+
+    // Polls older than about this stop counting towards the rate
+    private static final double POLL_RATE_WINDOW_MILLIS = 30 * 60 * 1000;
+    // Weight of the latest refresh in the yield average
+    private static final double YIELD_ALPHA = 0.3;
+
+    // Refill early enough to cover this much demand while a refresh is in flight
+    private static final long REFILL_LEAD_MILLIS = 2 * 60 * 1000;
+    // Hold enough results for this much demand
+    private static final long TARGET_COVERAGE_MILLIS = 30 * 60 * 1000;
+
+    private static final int MIN_LOW_WATERMARK = 3;
+    private static final int MAX_LOW_WATERMARK = 50;
+    private static final int MIN_TARGET_SIZE = 20;
+    private static final long MIN_REFRESH_INTERVAL = 5 * 60 * 1000; // 5 minutes
+    private static final long MAX_REFRESH_INTERVAL = 6 * 60 * 60 * 1000; // 6 hours
+    // Refreshes yielding fewer new results than this are mostly wasted calls, so they are spaced out
+    private static final double LOW_YIELD = 5;
+    // Not every post is media or new, so listings ask for this many posts per missing result
+    private static final double LISTING_OVERFETCH = 2.0;
+    private static final int MIN_LISTING_LIMIT = 10;
+
+    /**
+     * How many listings a refresh reads and how many posts it requests from each
+     */
+    public record FetchPlan(int listings, int limit) {
+    }
+
+    private final int maxQueueSize;
+
+    // Guarded by this
+    private double decayedPolls;
+    private long lastPollAt = System.currentTimeMillis();
+    private double averageYield = Double.NaN;
+
+    public SubredditRefreshPolicy(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public synchronized void recordPoll() {
+        long now = System.currentTimeMillis();
+        decayedPolls = decayedPolls * decay(now - lastPollAt) + 1;
+        lastPollAt = now;
+    }
+
+    /**
+     * @param added new results the refresh put into the queue
+     */
+    public synchronized void recordRefresh(int added) {
+        averageYield = Double.isNaN(averageYield) ? added : YIELD_ALPHA * added + (1 - YIELD_ALPHA) * averageYield;
+    }
+
+    public synchronized long lastPollAt() {
+        return lastPollAt;
+    }
+
+    /**
+     * Recent polls per millisecond
+     */
+    public synchronized double pollRate() {
+        return decayedPolls * decay(System.currentTimeMillis() - lastPollAt) / POLL_RATE_WINDOW_MILLIS;
+    }
+
+    /**
+     * Queue size below which a background refresh is started
+     */
+    public int lowWatermark() {
+        int demand = (int) Math.ceil(pollRate() * REFILL_LEAD_MILLIS);
+        return Math.clamp(demand, MIN_LOW_WATERMARK, MAX_LOW_WATERMARK);
+    }
+
+    /**
+     * Number of results worth holding in the queue
+     */
+    public int targetSize() {
+        int demand = (int) Math.ceil(pollRate() * TARGET_COVERAGE_MILLIS);
+        return Math.clamp(demand, Math.min(maxQueueSize, Math.max(MIN_TARGET_SIZE, 2 * lowWatermark())), maxQueueSize);
+    }
+
+    /**
+     * Sizes a refresh to what a queue holding the given number of results is missing from its target,
+     * so a cold subreddit reads one short listing instead of several full ones it would mostly discard
+     */
+    public FetchPlan fetchPlan(int queued, int maxListings, int maxLimit) {
+        double wanted = Math.max(0, targetSize() - queued) * LISTING_OVERFETCH;
+        int listings = Math.clamp((int) Math.ceil(wanted / maxLimit), 1, maxListings);
+        int limit = Math.clamp((int) Math.ceil(wanted / listings), MIN_LISTING_LIMIT, maxLimit);
+        return new FetchPlan(listings, limit);
+    }
+
+    /**
+     * Time after which a queue below its target is refreshed even if it is not low: roughly how long the target size
+     * lasts at the current poll rate, stretched further when refreshes keep coming back with little new
+     */
+    public long refreshInterval() {
+        double rate = pollRate();
+        double drainMillis = rate > 0 ? targetSize() / rate : MAX_REFRESH_INTERVAL;
+        synchronized (this) {
+            if (averageYield < LOW_YIELD) {
+                drainMillis *= 2;
+            }
+        }
+        return Math.clamp((long) drainMillis, MIN_REFRESH_INTERVAL, MAX_REFRESH_INTERVAL);
+    }
+
+    private static double decay(long elapsedMillis) {
+        return Math.exp(-Math.max(0, elapsedMillis) / POLL_RATE_WINDOW_MILLIS);
+    }
+}
@@ -0,0 +1,171 @@
+package me.mediaroulette.reddit.reddit;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass classifier for candidate media URLs.
+ * The host and the path's file extension are located once; the extension is matched by length and
+ * characters, and the host is walked right to left through a trie of reversed media domains, so a
+ * domain only matches on a label boundary (i.imgur.com matches imgur.com, notimgur.com.evil does not).
+ * Nothing is allocated per call.
+ */
+public final class MediaUrlClassifier {
+
+    public enum MediaKind {
+        NONE,
+        IMAGE,
+        GIF,
+        VIDEO,
+        /** A known media host without a recognizable file extension */
+        HOSTED;
+
+        public boolean isMedia() {
+            return this != NONE;
+        }
+    }
+
+    private static final String[] MEDIA_HOSTS = {
+            "giphy.com", "tenor.com", "gfycat.com", "redgifs.com", "streamable.com", "imgur.com",
+            "i.redd.it", "preview.redd.it", "external-preview.redd.it"
+    };
+
+    private static final HostNode HOSTS = buildHostTrie();
+
+    private MediaUrlClassifier() {
+    }
+
+    public static MediaKind classify(String url) {
+        if (url == null) {
+            return MediaKind.NONE;
+        }
+
+        int hostStart;
+        if (url.startsWith("https://")) {
+            hostStart = 8;
+        } else if (url.startsWith("http://")) {
+            hostStart = 7;
+        } else {
+            return MediaKind.NONE;
+        }
+
+        // One scan finds the end of the host, the end of the path and the last dot in the path
+        int length = url.length();
+        int hostEnd = -1;
+        int pathEnd = length;
+        int lastDot = -1;
+        for (int i = hostStart; i < length; i++) {
+            char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                pathEnd = i;
+                break;
+            }
+            if (hostEnd < 0) {
+                if (c == '/' || c == ':') {
+                    hostEnd = i;
+                }
+            } else if (c == '.') {
+                lastDot = i;
+            } else if (c == '/') {
+                lastDot = -1;
+            }
+        }
+        if (hostEnd < 0) {
+            hostEnd = pathEnd;
+        }
+
+        MediaKind extensionKind = lastDot > 0 ? extensionKind(url, lastDot + 1, pathEnd) : MediaKind.NONE;
+        if (extensionKind != MediaKind.NONE) {
+            return extensionKind;
+        }
+        return isMediaHost(url, hostStart, hostEnd) ? MediaKind.HOSTED : MediaKind.NONE;
+    }
+
+    private static MediaKind extensionKind(String url, int start, int end) {
+        switch (end - start) {
+            case 3 -> {
+                if (matches(url, start, "jpg") || matches(url, start, "png")) {
+                    return MediaKind.IMAGE;
+                }
+                if (matches(url, start, "gif")) {
+                    return MediaKind.GIF;
+                }
+                if (matches(url, start, "mp4") || matches(url, start, "mov")) {
+                    return MediaKind.VIDEO;
+                }
+            }
+            case 4 -> {
+                if (matches(url, start, "jpeg") || matches(url, start, "webp")) {
+                    return MediaKind.IMAGE;
+                }
+                if (matches(url, start, "webm")) {
+                    return MediaKind.VIDEO;
+                }
+            }
+            default -> {
+            }
+        }
+        return MediaKind.NONE;
+    }
+
+    private static boolean matches(String url, int start, String extension) {
+        return url.regionMatches(true, start, extension, 0, extension.length());
+    }
+
+    private static boolean isMediaHost(String url, int hostStart, int hostEnd) {
+        HostNode node = HOSTS;
+        for (int i = hostEnd - 1; i >= hostStart; i--) {
+            node = node.child(Character.toLowerCase(url.charAt(i)));
+            if (node == null) {
+                return false;
+            }
+            // A domain matches the whole host or a suffix starting right after a dot
+            if (node.terminal && (i == hostStart || url.charAt(i - 1) == '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static HostNode buildHostTrie() {
+        HostNode root = new HostNode();
+        for (String host : MEDIA_HOSTS) {
+            HostNode node = root;
+            for (int i = host.length() - 1; i >= 0; i--) {
+                node = node.getOrAddChild(host.charAt(i));
+            }
+            node.terminal = true;
+        }
+        return root;
+    }
+
+    /**
+     * Trie node over reversed host names; children are kept in small parallel arrays
+     */
+    private static final class HostNode {
+        private char[] labels = new char[0];
+        private HostNode[] children = new HostNode[0];
+        private boolean terminal;
+
+        HostNode child(char c) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        HostNode getOrAddChild(char c) {
+            HostNode existing = child(c);
+            if (existing != null) {
+                return existing;
+            }
+            HostNode node = new HostNode();
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            labels[labels.length - 1] = c;
+            children[children.length - 1] = node;
+            return node;
+        }
+    }
+}
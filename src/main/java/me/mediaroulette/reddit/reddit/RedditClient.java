@@ -3,38 +3,120 @@ package me.mediaroulette.reddit.reddit;
 import me.hash.mediaroulette.Main;
 import okhttp3.*;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class RedditClient {
+    private static final Logger logger = LoggerFactory.getLogger(RedditClient.class);
 
     private static final MediaType MEDIA_TYPE = MediaType.parse("application/x-www-form-urlencoded");
     // Volatile variables ensure proper visibility across threads.
     private static volatile String accessToken = null;
     private static volatile long accessTokenExpirationTime = 0;
+    // Pending renewal shared by every caller that needs a new token; guarded by RedditClient.class
+    private static CompletableFuture<String> tokenRenewal = null;
+
+    // Renew this long before expiry so requests keep using the old token while the new one is fetched
+    private static final long TOKEN_RENEWAL_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final ScheduledExecutorService TOKEN_RENEWAL_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reddit-token-renewal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int MAX_IDLE_CONNECTIONS = 10;
 
     public static final OkHttpClient HTTP_CLIENT = new OkHttpClient.Builder()
             .connectTimeout(10, TimeUnit.SECONDS)
             .readTimeout(10, TimeUnit.SECONDS)
             .writeTimeout(10, TimeUnit.SECONDS)
-            .connectionPool(new ConnectionPool(10, 5, TimeUnit.MINUTES))
+            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, 5, TimeUnit.MINUTES))
             .build();
 
+    // Main builds one client that every caller shares, so the whole plugin stays inside one Reddit quota.
+    // Owned by the client rather than the class, so a plugin re-enabled in the same class loader gets a live one.
+    private final RedditRateLimiter rateLimiter = new RedditRateLimiter();
+
+    /**
+     * Returns a valid access token, blocking only when no usable token exists yet
+     */
     public String getAccessToken() throws IOException {
-        if (accessToken == null || System.currentTimeMillis() > accessTokenExpirationTime) {
-            synchronized (RedditClient.class) {
-                if (accessToken == null || System.currentTimeMillis() > accessTokenExpirationTime) {
-                    return fetchAccessToken();
-                }
+        try {
+            return getAccessTokenAsync().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
             }
+            throw new IOException("Failed to retrieve access token", cause);
         }
-        return accessToken;
     }
 
-    private String fetchAccessToken() throws IOException {
+    /**
+     * Returns the current token immediately while it is valid, starting a background renewal once it
+     * enters the renewal margin. Only callers without a usable token wait on the renewal future.
+     */
+    public CompletableFuture<String> getAccessTokenAsync() {
+        String token = accessToken;
+        long now = System.currentTimeMillis();
+
+        if (token != null && now < accessTokenExpirationTime) {
+            if (now > accessTokenExpirationTime - TOKEN_RENEWAL_MARGIN_MILLIS) {
+                renewAccessToken();
+            }
+            return CompletableFuture.completedFuture(token);
+        }
+        return renewAccessToken();
+    }
+
+    /**
+     * Starts a token renewal unless one is already in flight, in which case callers share it
+     */
+    private CompletableFuture<String> renewAccessToken() {
+        synchronized (RedditClient.class) {
+            CompletableFuture<String> pending = tokenRenewal;
+            if (pending != null) {
+                return pending;
+            }
+
+            CompletableFuture<String> renewal = fetchAccessToken();
+            tokenRenewal = renewal;
+            renewal.whenComplete((_, e) -> {
+                synchronized (RedditClient.class) {
+                    tokenRenewal = null;
+                }
+                if (e != null) {
+                    logger.error("Failed to renew Reddit access token: {}", e.getMessage());
+                } else {
+                    scheduleProactiveRenewal();
+                }
+            });
+            return renewal;
+        }
+    }
+
+    private void scheduleProactiveRenewal() {
+        long delay = accessTokenExpirationTime - TOKEN_RENEWAL_MARGIN_MILLIS - System.currentTimeMillis();
+        try {
+            // Goes through getAccessTokenAsync so a renewal already done on demand is not repeated
+            TOKEN_RENEWAL_SCHEDULER.schedule(this::getAccessTokenAsync, Math.max(0, delay) + 1, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Scheduler is shutting down; the next request renews on demand
+        }
+    }
+
+    private CompletableFuture<String> fetchAccessToken() {
         String authString = Main.getEnv("REDDIT_CLIENT_ID") + ":" + Main.getEnv("REDDIT_CLIENT_SECRET");
         String encodedAuthString = Base64.getEncoder().encodeToString(authString.getBytes());
 
@@ -50,26 +132,7 @@ public class RedditClient {
                 .addHeader("User-Agent", "MediaRoulette/0.1 by pgmmestar")
                 .build();
 
-        try (Response response = HTTP_CLIENT.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("Failed to retrieve access token: " + response);
-            }
-            String responseBody = response.body().string();
-            JSONObject json = new JSONObject(responseBody);
-            accessToken = json.getString("access_token");
-            accessTokenExpirationTime = System.currentTimeMillis() + json.getLong("expires_in") * 1000;
-            return accessToken;
-        }
-    }
-
-    public CompletableFuture<Response> sendGetRequestAsync(String url, String token) {
-        Request request = new Request.Builder()
-                .url(url)
-                .addHeader("Authorization", "Bearer " + token)
-                .addHeader("User-Agent", "MediaRoulette/0.1 by pgmmestar")
-                .build();
-
-        CompletableFuture<Response> future = new CompletableFuture<>();
+        CompletableFuture<String> future = new CompletableFuture<>();
         HTTP_CLIENT.newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
@@ -77,9 +140,124 @@ public class RedditClient {
             }
             @Override
             public void onResponse(Call call, Response response) {
-                future.complete(response);
+                try (response) {
+                    if (!response.isSuccessful()) {
+                        throw new IOException("Failed to retrieve access token: " + response);
+                    }
+                    String responseBody = response.body().string();
+                    JSONObject json = new JSONObject(responseBody);
+                    String token = json.getString("access_token");
+                    // Publish the expiration first so readers never pair the new token with the old expiry
+                    accessTokenExpirationTime = System.currentTimeMillis() + json.getLong("expires_in") * 1000;
+                    accessToken = token;
+                    future.complete(token);
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
             }
         });
         return future;
     }
+
+    public CompletableFuture<Response> sendGetRequestAsync(String url, String token) {
+        return sendGetRequestAsync(url, token, RedditRateLimiter.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Sends a GET request once the rate limiter grants a permit for the given priority
+     */
+    public CompletableFuture<Response> sendGetRequestAsync(String url, String token, RedditRateLimiter.Priority priority) {
+        return rateLimiter.acquire(priority).thenCompose(_ -> enqueueGetRequest(url, token));
+    }
+
+    /**
+     * Sends a GET request at the group's priority; see {@link #promote}
+     */
+    public CompletableFuture<Response> sendGetRequestAsync(String url, String token, RedditRateLimiter.RequestGroup group) {
+        return rateLimiter.acquire(group).thenCompose(_ -> enqueueGetRequest(url, token));
+    }
+
+    /**
+     * Raises the priority of a request group, including its requests still waiting for a permit
+     */
+    public void promote(RedditRateLimiter.RequestGroup group, RedditRateLimiter.Priority priority) {
+        rateLimiter.promote(group, priority);
+    }
+
+    private CompletableFuture<Response> enqueueGetRequest(String url, String token) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        try {
+            Request request = new Request.Builder()
+                    .url(url)
+                    .addHeader("Authorization", "Bearer " + token)
+                    .addHeader("User-Agent", "MediaRoulette/0.1 by pgmmestar")
+                    .build();
+
+            HTTP_CLIENT.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    rateLimiter.onFailure();
+                    future.completeExceptionally(e);
+                }
+                @Override
+                public void onResponse(Call call, Response response) {
+                    rateLimiter.onResponse(response);
+                    // Nobody will read a response for a future that was already cancelled; release its connection
+                    if (!future.complete(response)) {
+                        response.close();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // A malformed URL or a shut down dispatcher: the request was never sent, so give its permit back
+            rateLimiter.onFailure();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Stops this client's rate limiter; requests still waiting for a permit fail
+     */
+    public void shutdown() {
+        rateLimiter.shutdown();
+    }
+
+    /**
+     * Get rate limiter statistics for monitoring
+     */
+    public Map<String, Object> getRateLimitStats() {
+        return rateLimiter.getStats();
+    }
+
+    /**
+     * Connection pool and dispatcher usage. Calls queue once the dispatcher reaches its total or
+     * per-host limit, so running calls are reported per host against those limits.
+     */
+    public Map<String, Object> getConnectionPoolStats() {
+        ConnectionPool pool = HTTP_CLIENT.connectionPool();
+        Dispatcher dispatcher = HTTP_CLIENT.dispatcher();
+        int connections = pool.connectionCount();
+        int idle = pool.idleConnectionCount();
+
+        Map<String, Integer> runningPerHost = new HashMap<>();
+        for (Call call : dispatcher.runningCalls()) {
+            runningPerHost.merge(call.request().url().host(), 1, Integer::sum);
+        }
+        int running = runningPerHost.values().stream().mapToInt(Integer::intValue).sum();
+        int busiestHost = runningPerHost.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("connections", connections);
+        stats.put("idle_connections", idle);
+        stats.put("active_connections", connections - idle);
+        stats.put("running_calls", running);
+        stats.put("running_calls_per_host", runningPerHost);
+        stats.put("queued_calls", dispatcher.queuedCallsCount());
+        stats.put("max_requests", dispatcher.getMaxRequests());
+        stats.put("max_requests_per_host", dispatcher.getMaxRequestsPerHost());
+        stats.put("saturated", running >= dispatcher.getMaxRequests()
+                || busiestHost >= dispatcher.getMaxRequestsPerHost());
+        return stats;
+    }
 }
\ No newline at end of file
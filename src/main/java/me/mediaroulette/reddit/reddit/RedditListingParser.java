@@ -0,0 +1,171 @@
+package me.mediaroulette.reddit.reddit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streaming parser for Reddit listing responses.
+ * Reads the body token by token and only materializes the post fields the
+ * post processor uses, skipping everything else without building it in memory.
+ */
+public class RedditListingParser {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Post fields read by RedditPostProcessor
+    private static final Set<String> POST_FIELDS = Set.of(
+            "id", "title", "subreddit", "permalink", "selftext", "url", "thumbnail",
+            "post_hint", "is_gallery", "gallery_data", "media_metadata", "preview", "crosspost_parent"
+    );
+
+    // Nested fields inside kept objects that the processor never reads (e.g. preview gif/mp4 variants)
+    private static final Set<String> SKIPPED_NESTED_FIELDS = Set.of("variants", "reddit_video_preview");
+
+    /**
+     * Parsed listing: the post data objects and the cursor for the next page (null on the last page),
+     * or the API error if Reddit returned one
+     */
+    public record Listing(List<JSONObject> posts, String after, String error) {
+        public boolean hasError() {
+            return error != null;
+        }
+    }
+
+    public Listing parse(InputStream body) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object for Reddit listing");
+            }
+
+            ListingData data = new ListingData(Collections.emptyList(), null);
+            String error = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+
+                if ("error".equals(field) && token != JsonToken.VALUE_NULL) {
+                    error = parser.getText();
+                    parser.skipChildren();
+                } else if ("data".equals(field) && token == JsonToken.START_OBJECT) {
+                    data = readListingData(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            return new Listing(data.posts(), data.after(), error);
+        }
+    }
+
+    private record ListingData(List<JSONObject> posts, String after) {
+    }
+
+    private ListingData readListingData(JsonParser parser) throws IOException {
+        List<JSONObject> posts = new ArrayList<>();
+        String after = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+
+            if ("children".equals(field) && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    JSONObject post = readChild(parser);
+                    if (post != null) {
+                        posts.add(post);
+                    }
+                }
+            } else if ("after".equals(field) && token == JsonToken.VALUE_STRING) {
+                after = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return new ListingData(posts, after);
+    }
+
+    private JSONObject readChild(JsonParser parser) throws IOException {
+        JSONObject post = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+
+            if ("data".equals(field) && token == JsonToken.START_OBJECT) {
+                post = readPost(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return post;
+    }
+
+    private JSONObject readPost(JsonParser parser) throws IOException {
+        JSONObject post = new JSONObject();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+
+            if (POST_FIELDS.contains(field)) {
+                post.put(field, readValue(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return post;
+    }
+
+    private Object readValue(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT -> {
+                JSONObject object = new JSONObject();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if (SKIPPED_NESTED_FIELDS.contains(field)) {
+                        parser.skipChildren();
+                    } else {
+                        object.put(field, readValue(parser));
+                    }
+                }
+                return object;
+            }
+            case START_ARRAY -> {
+                JSONArray array = new JSONArray();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    array.put(readValue(parser));
+                }
+                return array;
+            }
+            case VALUE_STRING -> {
+                return parser.getText();
+            }
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> {
+                return parser.getNumberValue();
+            }
+            case VALUE_TRUE -> {
+                return Boolean.TRUE;
+            }
+            case VALUE_FALSE -> {
+                return Boolean.FALSE;
+            }
+            default -> {
+                return JSONObject.NULL;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package me.mediaroulette.reddit.reddit;
+
+import me.hash.mediaroulette.model.content.MediaResult;
+import me.hash.mediaroulette.model.content.MediaSource;
+
+/**
+ * A queued Reddit media item together with the identity of the post it came from.
+ * The key packs the base-36 post id and the gallery index into a single long, so dedupe
+ * needs no allocation and distinct posts never collide.
+ * The origin key identifies the original post for crossposts and equals the key otherwise.
+ * Only raw post fields are held; titles and descriptions are rendered when the item is served.
+ *
+ * @param galleryIndex 1-based position in a gallery, 0 for single media posts
+ * @param galleryTotal number of images in the gallery, 0 for single media posts
+ */
+public record RedditMedia(long key, long originKey, String imageUrl, String imageType, String imageContent,
+                          RedditPost post, int galleryIndex, int galleryTotal) {
+
+    // Low bits hold the gallery index (0 for single media posts, 1-based for gallery items)
+    private static final int GALLERY_INDEX_BITS = 8;
+    private static final long GALLERY_INDEX_MASK = (1L << GALLERY_INDEX_BITS) - 1;
+    // Keys not derived from a post id set the sign bit so they can never equal a post key
+    private static final long CONTENT_KEY_FLAG = Long.MIN_VALUE;
+
+    // Hosts whose media URLs only carry resizing or signature parameters in the query string
+    private static final String[] QUERY_INSENSITIVE_HOSTS = {"i.redd.it", "preview.redd.it", "i.imgur.com"};
+
+    public String title() {
+        if (galleryTotal == 0) {
+            return post.title();
+        }
+        return post.title() + " (Image " + galleryIndex + "/" + galleryTotal + ")";
+    }
+
+    /**
+     * Builds the result shown to the user
+     */
+    public MediaResult toMediaResult() {
+        return new MediaResult(imageUrl, title(), post.description(), MediaSource.valueOf("REDDIT"), imageType, imageContent);
+    }
+
+    /**
+     * Builds a key from a post's base-36 id (e.g. "1a2b3c", without the t3_ prefix)
+     */
+    public static long postKey(String postId, int galleryIndex) {
+        return Long.parseLong(postId, 36) << GALLERY_INDEX_BITS | (galleryIndex & GALLERY_INDEX_MASK);
+    }
+
+    /**
+     * Fallback key for media without a post id: 64-bit FNV-1a over URL and title
+     */
+    public static long contentKey(String imageUrl, String title) {
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv1a(hash, imageUrl, 0, length(imageUrl));
+        hash = (hash ^ '|') * 0x100000001b3L;
+        hash = fnv1a(hash, title, 0, length(title));
+        return hash | CONTENT_KEY_FLAG;
+    }
+
+    /**
+     * Hash of the media URL with the scheme, "www." and, for Reddit and Imgur image hosts, the query
+     * string removed; preview.redd.it maps onto i.redd.it. Returns 0 for URLs that are not http(s).
+     */
+    public static long urlKey(String url) {
+        if (url == null) {
+            return 0;
+        }
+
+        int start;
+        if (url.regionMatches(true, 0, "https://", 0, 8)) {
+            start = 8;
+        } else if (url.regionMatches(true, 0, "http://", 0, 7)) {
+            start = 7;
+        } else {
+            return 0;
+        }
+        if (url.regionMatches(true, start, "www.", 0, 4)) {
+            start += 4;
+        }
+
+        int end = url.indexOf('#', start);
+        if (end < 0) {
+            end = url.length();
+        }
+        int query = url.indexOf('?', start);
+        if (query >= 0 && query < end && hasQueryInsensitiveHost(url, start)) {
+            end = query;
+        }
+
+        long hash = 0xcbf29ce484222325L;
+        if (url.regionMatches(true, start, "preview.redd.it/", 0, 16)) {
+            hash = fnv1a(hash, "i.redd.it/", 0, 10);
+            start += 16;
+        }
+        hash = fnv1a(hash, url, start, end);
+        return hash | CONTENT_KEY_FLAG;
+    }
+
+    private static boolean hasQueryInsensitiveHost(String url, int start) {
+        for (String host : QUERY_INSENSITIVE_HOSTS) {
+            if (url.regionMatches(true, start, host, 0, host.length())
+                    && url.length() > start + host.length() && url.charAt(start + host.length()) == '/') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static long fnv1a(long hash, String value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
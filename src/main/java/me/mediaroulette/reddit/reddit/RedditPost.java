@@ -0,0 +1,16 @@
+package me.mediaroulette.reddit.reddit;
+
+/**
+ * Raw fields of a Reddit post that display text is built from; shared by all media of a gallery
+ */
+public record RedditPost(String title, String subreddit, String permalink) {
+
+    /**
+     * Renders the embed description; only called when a result is served
+     */
+    public String description() {
+        return "🌐 Source: Reddit\n🔎 Subreddit: " + subreddit +
+                "\n✏️ Title: " + title +
+                "\n🔗 Post Link: <https://www.reddit.com" + permalink + ">";
+    }
+}
@@ -1,7 +1,5 @@
 package me.mediaroulette.reddit.reddit;
 
-import me.hash.mediaroulette.model.content.MediaResult;
-import me.hash.mediaroulette.model.content.MediaSource;
 import okhttp3.OkHttpClient;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -28,12 +26,12 @@ public class RedditPostProcessor {
     private static final int MIN_HEIGHT = 300;
     private static final int MIN_AREA = MIN_WIDTH * MIN_HEIGHT;
 
-    public List<MediaResult> processPosts(JSONArray posts) {
-        List<MediaResult> results = new ArrayList<>();
+    public List<RedditMedia> processPosts(JSONArray posts) {
+        List<RedditMedia> results = new ArrayList<>();
         for (int i = 0; i < posts.length(); i++) {
             try {
                 JSONObject postData = posts.getJSONObject(i).getJSONObject("data");
-                List<MediaResult> postResults = processPost(postData);
+                List<RedditMedia> postResults = processPost(postData);
                 results.addAll(postResults);
             } catch (Exception e) {
                 logger.error("Error processing post: {}", e.getMessage());
@@ -42,25 +40,71 @@ public class RedditPostProcessor {
         return results;
     }
 
-    public List<MediaResult> processPost(JSONObject postData) {
-        List<MediaResult> results = new ArrayList<>();
-        String title = postData.optString("title", "Reddit Post");
-        String description = buildDescription(postData);
+    /**
+     * Processes post data objects produced by {@link RedditListingParser}
+     */
+    public List<RedditMedia> processPosts(List<JSONObject> posts) {
+        List<RedditMedia> results = new ArrayList<>();
+        for (JSONObject postData : posts) {
+            try {
+                results.addAll(processPost(postData));
+            } catch (Exception e) {
+                logger.error("Error processing post: {}", e.getMessage());
+            }
+        }
+        return results;
+    }
+
+    public List<RedditMedia> processPost(JSONObject postData) {
+        List<RedditMedia> results = new ArrayList<>();
+        // Display text is rendered from these raw fields only when a result is served;
+        // the subreddit name is interned so every queued post of a subreddit shares one copy
+        RedditPost post = new RedditPost(postData.optString("title", "Reddit Post"),
+                postData.optString("subreddit", "unknown").intern(), postData.optString("permalink", ""));
 
         // Check if it's a gallery post first
         if (postData.optBoolean("is_gallery", false)) {
-            results.addAll(processGalleryPost(postData, title, description));
+            results.addAll(processGalleryPost(postData, post));
         } else {
             // Process single media post
-            MediaResult singleResult = processSingleMediaPost(postData, title, description);
-            results.add(singleResult);
+            results.add(processSingleMediaPost(postData, post));
         }
 
         return results;
     }
 
-    private List<MediaResult> processGalleryPost(JSONObject postData, String title, String description) {
-        List<MediaResult> results = new ArrayList<>();
+    /**
+     * Keys media by post id and gallery index, falling back to a content hash for posts without an id.
+     * Crossposts also carry the key of the post they were crossposted from.
+     */
+    private RedditMedia newMedia(JSONObject postData, RedditPost post, String imageUrl, String imageType,
+                                 String imageContent, int galleryIndex, int galleryTotal) {
+        long key = postKey(postData.optString("id", ""), galleryIndex);
+        if (key == 0) {
+            key = RedditMedia.contentKey(imageUrl, post.title());
+        }
+
+        // crosspost_parent is a fullname such as "t3_1a2b3c"
+        String parent = postData.optString("crosspost_parent", "");
+        long originKey = postKey(parent.startsWith("t3_") ? parent.substring(3) : "", galleryIndex);
+        return new RedditMedia(key, originKey != 0 ? originKey : key, imageUrl, imageType, imageContent,
+                post, galleryIndex, galleryTotal);
+    }
+
+    private long postKey(String postId, int galleryIndex) {
+        if (postId.isEmpty()) {
+            return 0;
+        }
+        try {
+            return RedditMedia.postKey(postId, galleryIndex);
+        } catch (NumberFormatException e) {
+            logger.debug("Unexpected Reddit post id: {}", postId);
+            return 0;
+        }
+    }
+
+    private List<RedditMedia> processGalleryPost(JSONObject postData, RedditPost post) {
+        List<RedditMedia> results = new ArrayList<>();
 
         JSONObject galleryData = postData.optJSONObject("gallery_data");
         JSONObject mediaMetadata = postData.optJSONObject("media_metadata");
@@ -88,8 +132,7 @@ public class RedditPostProcessor {
                 String imageUrl = extractUrlFromMediaMetadata(media);
 
                 if (isValidMediaUrl(imageUrl)) {
-                    String galleryTitle = String.format("%s (Image %d/%d)", title, i + 1, items.length());
-                    results.add(new MediaResult(imageUrl, galleryTitle, description, MediaSource.valueOf("REDDIT"), null, null));
+                    results.add(newMedia(postData, post, imageUrl, null, null, i + 1, items.length()));
                 }
             } catch (Exception e) {
                 logger.error("Error processing gallery item {}: {}", i, e.getMessage());
@@ -99,14 +142,14 @@ public class RedditPostProcessor {
         return results;
     }
 
-    private MediaResult processSingleMediaPost(JSONObject postData, String title, String description) {
+    private RedditMedia processSingleMediaPost(JSONObject postData, RedditPost post) {
         String imageUrl = extractImageUrl(postData);
         String imageContent = null;
         String imageType = null;
 
         if (imageUrl.equals("attachment://image.png")) {
             // Create a brief text content from the post title or text
-            imageContent = generateBriefContent(postData, title);
+            imageContent = generateBriefContent(postData, post.title());
             imageType = "create";
             imageUrl = "attachment://image.png";
         } else {
@@ -114,7 +157,7 @@ public class RedditPostProcessor {
             imageUrl = resolveExternalMediaUrl(imageUrl);
         }
 
-        return new MediaResult(imageUrl, title, description, MediaSource.valueOf("REDDIT"), imageType, imageContent);
+        return newMedia(postData, post, imageUrl, imageType, imageContent, 0, 0);
     }
 
     private String generateBriefContent(JSONObject postData, String title) {
@@ -200,12 +243,12 @@ public class RedditPostProcessor {
         for (String key : resolutionKeys) {
             JSONObject resObj = media.optJSONObject(key);
             if (resObj != null) {
-                String url = resObj.optString("u", "").replaceAll("&amp;", "&");
+                String url = resObj.optString("u", "");
                 int width = resObj.optInt("x", 0);
                 int height = resObj.optInt("y", 0);
 
                 if (isValidMediaUrl(url) && width >= MIN_WIDTH && height >= MIN_HEIGHT) {
-                    return url;
+                    return unescapeAmpersands(url);
                 }
             }
         }
@@ -258,7 +301,7 @@ public class RedditPostProcessor {
                 if (resolutions != null && !resolutions.isEmpty()) {
                     for (int j = resolutions.length() - 1; j >= 0; j--) {
                         JSONObject res = resolutions.getJSONObject(j);
-                        String url = res.optString("url", "").replaceAll("&amp;", "&");
+                        String url = res.optString("url", "");
                         int width = res.optInt("width", 0);
                         int height = res.optInt("height", 0);
                         double area = width * height;
@@ -273,7 +316,7 @@ public class RedditPostProcessor {
                 // Try source as fallback
                 JSONObject source = imgObj.optJSONObject("source");
                 if (source != null && bestUrl == null) {
-                    String url = source.optString("url", "").replaceAll("&amp;", "&");
+                    String url = source.optString("url", "");
                     int width = source.optInt("width", 0);
                     int height = source.optInt("height", 0);
                     double area = width * height;
@@ -287,7 +330,16 @@ public class RedditPostProcessor {
             }
         }
 
-        return bestUrl;
+        // Only the chosen URL is unescaped; classification does not depend on the query string
+        return bestUrl != null ? unescapeAmpersands(bestUrl) : null;
+    }
+
+    /**
+     * Listings are requested with raw_json=1, so URLs normally arrive unescaped; responses cached or
+     * fetched without it still have HTML-escaped ampersands in the query string
+     */
+    static String unescapeAmpersands(String url) {
+        return url.contains("&amp;") ? url.replace("&amp;", "&") : url;
     }
 
     private String resolveExternalMediaUrl(String url) {
@@ -341,32 +393,8 @@ public class RedditPostProcessor {
         return url;
     }
 
-    private String buildDescription(JSONObject postData) {
-        String subreddit = postData.optString("subreddit", "unknown");
-        String title = postData.optString("title", "");
-        String permalink = postData.optString("permalink", "");
-
-        return String.format("🌐 Source: Reddit\n🔎 Subreddit: %s\n✏️ Title: %s\n🔗 Post Link: <%s>",
-                subreddit, title, "https://www.reddit.com" + permalink);
-    }
-
     private boolean isValidMediaUrl(String url) {
-        if (url == null || url.isEmpty()) {
-            return false;
-        }
-
-        // Direct media file extensions
-        if (url.endsWith(".jpg") || url.endsWith(".jpeg") || url.endsWith(".png") ||
-                url.endsWith(".gif") || url.endsWith(".webp") || url.endsWith(".mp4") ||
-                url.endsWith(".webm") || url.endsWith(".mov")) {
-            return true;
-        }
-
-        // Known media hosting domains
-        return url.contains("giphy.com") || url.contains("tenor.com") ||
-                url.contains("gfycat.com") || url.contains("redgifs.com") ||
-                url.contains("streamable.com") || url.contains("imgur.com") ||
-                url.contains("i.redd.it") || url.contains("preview.redd.it") ||
-                url.contains("external-preview.redd.it");
+        // Direct media file extensions or known media hosting domains
+        return MediaUrlClassifier.classify(url).isMedia();
     }
 }
\ No newline at end of file
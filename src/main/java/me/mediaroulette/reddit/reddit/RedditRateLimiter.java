@@ -0,0 +1,345 @@
+package me.mediaroulette.reddit.reddit;
+
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Central request governor for the Reddit API.
+ * Tracks the quota reported in the X-Ratelimit-* headers of every response and hands out
+ * permits from a token bucket shared by all callers. User-facing requests may spend the whole
+ * quota, while prefetch and validation work keeps a reserve free and is paced across the
+ * remaining window so it never pushes the client into 429s.
+ * Permits are always completed after the monitor is released, so the stages waiting on them never
+ * run under the limiter's lock.
+ */
+public class RedditRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(RedditRateLimiter.class);
+
+    // Reddit grants OAuth clients 600 requests per 10 minute window
+    private static final int DEFAULT_WINDOW_CAPACITY = 600;
+    private static final long DEFAULT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    private static final long MIN_DRAIN_DELAY_MILLIS = 50;
+
+    /**
+     * Request priorities, highest first
+     */
+    public enum Priority {
+        /** A user is waiting on this request */
+        INTERACTIVE(0.0),
+        /** Background queue refills */
+        PREFETCH(0.10),
+        /** Background subreddit validation */
+        VALIDATION(0.25);
+
+        private final double reservedFraction;
+
+        Priority(double reservedFraction) {
+            this.reservedFraction = reservedFraction;
+        }
+    }
+
+    /**
+     * Requests issued together, such as the listing fetches of one refresh. Promoting the group
+     * raises the priority of its later requests and of those already waiting for a permit.
+     */
+    public static final class RequestGroup {
+        // Guarded by the limiter
+        private Priority priority;
+
+        public RequestGroup(Priority priority) {
+            this.priority = priority;
+        }
+    }
+
+    private record Waiter(Priority priority, long sequence, CompletableFuture<Void> permit, RequestGroup group) {
+    }
+
+    private final int windowCapacity;
+    private final long windowMillis;
+
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>((a, b) -> {
+        int byPriority = a.priority().compareTo(b.priority());
+        return byPriority != 0 ? byPriority : Long.compare(a.sequence(), b.sequence());
+    });
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reddit-rate-limiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private double remaining;
+    private long resetAt;
+    private int inFlight;
+    private long lastBackgroundGrant;
+    private long waiterSequence;
+    private ScheduledFuture<?> pendingDrain;
+
+    private final AtomicLong granted = new AtomicLong();
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong throttledResponses = new AtomicLong();
+
+    public RedditRateLimiter() {
+        this(DEFAULT_WINDOW_CAPACITY, DEFAULT_WINDOW_MILLIS);
+    }
+
+    public RedditRateLimiter(int windowCapacity, long windowMillis) {
+        this.windowCapacity = windowCapacity;
+        this.windowMillis = windowMillis;
+        this.remaining = windowCapacity;
+        this.resetAt = System.currentTimeMillis() + windowMillis;
+    }
+
+    /**
+     * Returns a future that completes once a request of the given priority may be sent.
+     * Never blocks the calling thread.
+     */
+    public synchronized CompletableFuture<Void> acquire(Priority priority) {
+        return acquire(priority, null);
+    }
+
+    /**
+     * Like {@link #acquire(Priority)}, at the group's current priority
+     */
+    public synchronized CompletableFuture<Void> acquire(RequestGroup group) {
+        return acquire(group.priority, group);
+    }
+
+    /**
+     * Raises the group to the given priority, re-queuing its waiting requests; never lowers it
+     */
+    public void promote(RequestGroup group, Priority priority) {
+        List<CompletableFuture<Void>> permits;
+        synchronized (this) {
+            if (priority.compareTo(group.priority) >= 0) {
+                return;
+            }
+            group.priority = priority;
+
+            List<Waiter> promoted = new ArrayList<>();
+            for (Iterator<Waiter> iterator = waiters.iterator(); iterator.hasNext(); ) {
+                Waiter waiter = iterator.next();
+                if (waiter.group() == group) {
+                    promoted.add(waiter);
+                    iterator.remove();
+                }
+            }
+            if (promoted.isEmpty()) {
+                return;
+            }
+            // Keep their sequence so promoted requests stay in their original order
+            promoted.forEach(waiter -> waiters.add(new Waiter(priority, waiter.sequence(), waiter.permit(), group)));
+            permits = drain(System.currentTimeMillis());
+        }
+        complete(permits);
+    }
+
+    private CompletableFuture<Void> acquire(Priority priority, RequestGroup group) {
+        long now = System.currentTimeMillis();
+        rollWindow(now);
+
+        // Only overtake queued waiters of strictly lower priority
+        boolean ahead = waiters.isEmpty() || priority.compareTo(waiters.peek().priority()) < 0;
+        if (ahead && tryGrant(priority, now)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        waiters.add(new Waiter(priority, waiterSequence++, permit, group));
+        delayed.incrementAndGet();
+        scheduleDrain(now);
+        return permit;
+    }
+
+    /**
+     * Updates the bucket from the rate-limit headers of a completed request
+     */
+    public void onResponse(Response response) {
+        String remainingHeader = response.header("X-Ratelimit-Remaining");
+        String resetHeader = response.header("X-Ratelimit-Reset");
+
+        List<CompletableFuture<Void>> permits;
+        synchronized (this) {
+            inFlight = Math.max(0, inFlight - 1);
+            long now = System.currentTimeMillis();
+
+            try {
+                if (remainingHeader != null) {
+                    remaining = Double.parseDouble(remainingHeader);
+                }
+                if (resetHeader != null) {
+                    resetAt = now + (long) (Double.parseDouble(resetHeader) * 1000);
+                }
+            } catch (NumberFormatException e) {
+                logger.debug("Ignoring malformed rate-limit headers: remaining={}, reset={}", remainingHeader, resetHeader);
+            }
+
+            if (response.code() == 429) {
+                throttledResponses.incrementAndGet();
+                remaining = 0;
+                if (resetHeader == null) {
+                    resetAt = now + retryAfterMillis(response);
+                }
+                logger.warn("Reddit rate limit hit, pausing requests for {} ms", resetAt - now);
+            }
+
+            permits = drain(now);
+        }
+        complete(permits);
+    }
+
+    /**
+     * Releases the permit of a request that failed without a response, or that could not be sent
+     */
+    public void onFailure() {
+        List<CompletableFuture<Void>> permits;
+        synchronized (this) {
+            inFlight = Math.max(0, inFlight - 1);
+            permits = drain(System.currentTimeMillis());
+        }
+        complete(permits);
+    }
+
+    /**
+     * Get rate limiter statistics for monitoring
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("remaining", remaining);
+        stats.put("reset_in_ms", Math.max(0, resetAt - System.currentTimeMillis()));
+        stats.put("in_flight", inFlight);
+        stats.put("waiting", waiters.size());
+        stats.put("granted", granted.get());
+        stats.put("delayed", delayed.get());
+        stats.put("throttled_responses", throttledResponses.get());
+        return stats;
+    }
+
+    /**
+     * Stops the drain scheduler and fails every queued request
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+
+        List<CompletableFuture<Void>> permits = new ArrayList<>();
+        synchronized (this) {
+            Waiter waiter;
+            while ((waiter = waiters.poll()) != null) {
+                permits.add(waiter.permit());
+            }
+        }
+        CancellationException cancelled = new CancellationException("Reddit rate limiter shut down");
+        permits.forEach(permit -> permit.completeExceptionally(cancelled));
+    }
+
+    private boolean tryGrant(Priority priority, long now) {
+        double available = remaining - inFlight;
+        double reserve = windowCapacity * priority.reservedFraction;
+        if (available < 1 || available <= reserve) {
+            return false;
+        }
+
+        if (priority != Priority.INTERACTIVE) {
+            // Spread background work evenly over the rest of the window
+            long spacing = (long) (Math.max(0, resetAt - now) / (available - reserve));
+            if (now - lastBackgroundGrant < spacing) {
+                return false;
+            }
+            lastBackgroundGrant = now;
+        }
+
+        inFlight++;
+        granted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Grants queued waiters while the bucket allows
+     *
+     * @return the granted permits, to be completed by the caller once it has left the monitor
+     */
+    private List<CompletableFuture<Void>> drain(long now) {
+        rollWindow(now);
+        List<CompletableFuture<Void>> permits = new ArrayList<>();
+        while (!waiters.isEmpty()) {
+            Waiter head = waiters.peek();
+            if (!tryGrant(head.priority(), now)) {
+                break;
+            }
+            waiters.poll();
+            permits.add(head.permit());
+        }
+
+        if (!waiters.isEmpty()) {
+            scheduleDrain(now);
+        }
+        return permits;
+    }
+
+    private static void complete(List<CompletableFuture<Void>> permits) {
+        permits.forEach(permit -> permit.complete(null));
+    }
+
+    private void scheduleDrain(long now) {
+        if (pendingDrain != null && !pendingDrain.isDone()) {
+            return;
+        }
+
+        Waiter head = waiters.peek();
+        long delay;
+        if (head == null || remaining - inFlight < 1) {
+            delay = Math.max(MIN_DRAIN_DELAY_MILLIS, resetAt - now);
+        } else {
+            double available = Math.max(1, remaining - inFlight);
+            delay = Math.max(MIN_DRAIN_DELAY_MILLIS, (long) (Math.max(0, resetAt - now) / available));
+        }
+
+        try {
+            pendingDrain = scheduler.schedule(() -> {
+                List<CompletableFuture<Void>> permits;
+                synchronized (this) {
+                    pendingDrain = null;
+                    permits = drain(System.currentTimeMillis());
+                }
+                complete(permits);
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            logger.debug("Rate limiter scheduler unavailable: {}", e.getMessage());
+        }
+    }
+
+    private void rollWindow(long now) {
+        if (now >= resetAt) {
+            remaining = windowCapacity;
+            resetAt = now + windowMillis;
+        }
+    }
+
+    private long retryAfterMillis(Response response) {
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter != null) {
+            try {
+                return Long.parseLong(retryAfter.trim()) * 1000;
+            } catch (NumberFormatException ignored) {
+                // Fall through to the default back-off
+            }
+        }
+        return DEFAULT_RETRY_AFTER_MILLIS;
+    }
+}
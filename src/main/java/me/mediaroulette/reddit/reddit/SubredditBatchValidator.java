@@ -0,0 +1,218 @@
+package me.mediaroulette.reddit.reddit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves subreddit existence checks in batches through /api/info?sr_name=a,b,c.
+ * Lookups are collected for a short window (or until a batch is full) and answered by one request;
+ * a subreddit that exists is listed in the response, one that does not is simply absent.
+ * Responses are streamed and only each subreddit's name and type are read.
+ */
+public class SubredditBatchValidator {
+    private static final Logger logger = LoggerFactory.getLogger(SubredditBatchValidator.class);
+
+    private static final long BATCH_WINDOW_MILLIS = 50;
+    private static final int MAX_BATCH_SIZE = 100;
+    // Reddit subreddit names; anything else cannot exist and would break the comma separated query
+    private static final Pattern SUBREDDIT_NAME = Pattern.compile("[A-Za-z0-9_]{2,21}");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private record PendingLookup(CompletableFuture<Boolean> future, RedditRateLimiter.Priority priority) {
+    }
+
+    private final RedditClient redditClient;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reddit-subreddit-batch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this; keyed by lowercase name so concurrent lookups of one subreddit share a future
+    private Map<String, PendingLookup> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    public SubredditBatchValidator(RedditClient redditClient) {
+        this.redditClient = redditClient;
+    }
+
+    /**
+     * Queues an existence check for the next batch
+     */
+    public CompletableFuture<Boolean> lookup(String subreddit, RedditRateLimiter.Priority priority) {
+        if (!SUBREDDIT_NAME.matcher(subreddit).matches()) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        String key = subreddit.toLowerCase(Locale.ROOT);
+        Map<String, PendingLookup> fullBatch = null;
+        CompletableFuture<Boolean> future;
+
+        synchronized (this) {
+            PendingLookup existing = pending.get(key);
+            if (existing != null) {
+                // Upgrade the batch priority if a more urgent caller joins
+                if (priority.ordinal() < existing.priority().ordinal()) {
+                    pending.put(key, new PendingLookup(existing.future(), priority));
+                }
+                return existing.future();
+            }
+
+            future = new CompletableFuture<>();
+            pending.put(key, new PendingLookup(future, priority));
+
+            if (pending.size() >= MAX_BATCH_SIZE) {
+                fullBatch = pending;
+                pending = new LinkedHashMap<>();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                try {
+                    scheduler.schedule(this::flush, BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    flushScheduled = false;
+                    fullBatch = pending;
+                    pending = new LinkedHashMap<>();
+                }
+            }
+        }
+
+        if (fullBatch != null) {
+            send(fullBatch);
+        }
+        return future;
+    }
+
+    private void flush() {
+        Map<String, PendingLookup> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+        send(batch);
+    }
+
+    private void send(Map<String, PendingLookup> batch) {
+        // The batch goes out at the priority of its most urgent member
+        RedditRateLimiter.Priority priority = batch.values().stream()
+                .map(PendingLookup::priority)
+                .min(Comparator.naturalOrder())
+                .orElse(RedditRateLimiter.Priority.VALIDATION);
+
+        String url = "https://oauth.reddit.com/api/info?sr_name=" + String.join(",", batch.keySet());
+        redditClient.getAccessTokenAsync()
+                .thenCompose(accessToken -> redditClient.sendGetRequestAsync(url, accessToken, priority))
+                .thenApply(response -> {
+                    try (response) {
+                        if (!response.isSuccessful()) {
+                            throw new IOException("Subreddit batch lookup failed with HTTP " + response.code());
+                        }
+                        return existingNames(response.body().byteStream());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .whenComplete((existing, error) -> {
+                    if (error != null) {
+                        logger.debug("Subreddit batch lookup of {} names failed: {}", batch.size(), error.getMessage());
+                        batch.values().forEach(lookup -> lookup.future().completeExceptionally(error));
+                        return;
+                    }
+                    batch.forEach((name, lookup) -> lookup.future().complete(existing.contains(name)));
+                    logger.debug("Resolved {} subreddits in one batch ({} exist)", batch.size(), existing.size());
+                });
+    }
+
+    /**
+     * Reads the names of the listed subreddits that can be browsed; private ones are treated as missing,
+     * as they were when /about answered them with an error
+     */
+    static Set<String> existingNames(InputStream body) throws IOException {
+        Set<String> names = new HashSet<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object for subreddit lookup");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("data".equals(field) && token == JsonToken.START_OBJECT) {
+                    readChildren(parser, names);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return names;
+    }
+
+    private static void readChildren(JsonParser parser, Set<String> names) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (!"children".equals(field) || token != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String childField = parser.currentName();
+                    JsonToken childToken = parser.nextToken();
+                    if ("data".equals(childField) && childToken == JsonToken.START_OBJECT) {
+                        readSubreddit(parser, names);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void readSubreddit(JsonParser parser, Set<String> names) throws IOException {
+        String name = null;
+        String type = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("display_name".equals(field) && token == JsonToken.VALUE_STRING) {
+                name = parser.getText();
+            } else if ("subreddit_type".equals(field) && token == JsonToken.VALUE_STRING) {
+                type = parser.getText();
+            } else {
+                // Descriptions, rules and styling make up most of the payload and are never built
+                parser.skipChildren();
+            }
+        }
+
+        if (name != null && !"private".equals(type)) {
+            names.add(name.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Resolves any queued lookups and stops the batching scheduler
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        flush();
+    }
+}
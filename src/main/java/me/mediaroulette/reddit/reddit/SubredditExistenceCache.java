@@ -0,0 +1,229 @@
+package me.mediaroulette.reddit.reddit;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of subreddit existence checks.
+ * Positive and negative results expire on separate TTLs, and the least recently used
+ * entries are evicted one at a time so hot subreddits never need revalidating inside their TTL.
+ * The persistent tier is written in the background: changes are debounced into one write per batch,
+ * made outside the lock through a temp file that replaces the old one, so the file is never left empty.
+ */
+public class SubredditExistenceCache {
+    private static final Logger logger = LoggerFactory.getLogger(SubredditExistenceCache.class);
+
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final long POSITIVE_TTL = TimeUnit.HOURS.toMillis(24);
+    private static final long NEGATIVE_TTL = TimeUnit.HOURS.toMillis(1);
+    // The persistent tier only warms the LRU after restarts, so it may hold a few generations of entries
+    private static final int PERSISTENT_TIER_FACTOR = 4;
+    private static final long FLUSH_DELAY_MILLIS = 1000;
+    private static final Path PERSISTENT_TIER_FILE = Path.of("subreddit_existence.json");
+
+    private final int maxEntries;
+    private final long positiveTtl;
+    private final long negativeTtl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Serializes flushes so an older snapshot never overwrites a newer one; never taken under this
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reddit-existence-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private final LinkedHashMap<String, SubredditExistence> entries;
+    private Map<String, SubredditExistence> persistentTier;
+    private boolean persistentTierDirty;
+    private boolean flushScheduled;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public SubredditExistenceCache() {
+        this(DEFAULT_MAX_ENTRIES, POSITIVE_TTL, NEGATIVE_TTL);
+    }
+
+    public SubredditExistenceCache(int maxEntries, long positiveTtl, long negativeTtl) {
+        this.maxEntries = maxEntries;
+        this.positiveTtl = positiveTtl;
+        this.negativeTtl = negativeTtl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SubredditExistence> eldest) {
+                if (size() > SubredditExistenceCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.persistentTier = readPersistentTier();
+    }
+
+    /**
+     * Returns the cached existence result, or null if the subreddit is unknown or its entry expired
+     */
+    public synchronized Boolean get(String subreddit) {
+        String key = normalize(subreddit);
+        long now = System.currentTimeMillis();
+
+        SubredditExistence entry = entries.get(key);
+        if (entry == null) {
+            // Fall back to the persistent tier and promote fresh entries into the LRU
+            entry = persistentTier.get(key);
+            if (entry != null && !isExpired(entry, now)) {
+                entries.put(key, entry);
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        if (isExpired(entry, now)) {
+            entries.remove(key);
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return entry.exists();
+    }
+
+    public synchronized void put(String subreddit, boolean exists) {
+        String key = normalize(subreddit);
+        SubredditExistence entry = new SubredditExistence(exists, System.currentTimeMillis());
+        entries.put(key, entry);
+        persistentTier.put(key, entry);
+        persistentTierDirty = true;
+
+        // Debounce: the first change after a flush schedules the next one
+        if (!flushScheduled) {
+            flushScheduled = true;
+            try {
+                flushScheduler.schedule(this::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flushScheduled = false;
+            }
+        }
+    }
+
+    /**
+     * Writes the persistent tier if it changed since the last flush
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<String, SubredditExistence> snapshot;
+            synchronized (this) {
+                flushScheduled = false;
+                if (!persistentTierDirty) {
+                    return;
+                }
+                if (persistentTier.size() > maxEntries * PERSISTENT_TIER_FACTOR) {
+                    // Rebuild the persistent tier from the live LRU instead of dropping everything
+                    persistentTier = new HashMap<>(entries);
+                    logger.debug("Compacted persistent subreddit existence cache to {} entries", entries.size());
+                }
+                snapshot = new HashMap<>(persistentTier);
+                persistentTierDirty = false;
+            }
+
+            // Lookups keep being served from memory while the file is written
+            if (!writePersistentTier(snapshot)) {
+                synchronized (this) {
+                    persistentTierDirty = true;
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get cache statistics for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("max_size", maxEntries);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        return stats;
+    }
+
+    private Map<String, SubredditExistence> readPersistentTier() {
+        if (!Files.exists(PERSISTENT_TIER_FILE)) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readValue(PERSISTENT_TIER_FILE.toFile(),
+                    new TypeReference<HashMap<String, SubredditExistence>>() {});
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable persistent subreddit existence cache: {}", e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Writes the snapshot to a temp file and moves it over the old one
+     *
+     * @return false if the write failed and the changes must be kept for the next flush
+     */
+    private boolean writePersistentTier(Map<String, SubredditExistence> snapshot) {
+        Path tempFile = PERSISTENT_TIER_FILE.resolveSibling(PERSISTENT_TIER_FILE.getFileName() + ".tmp");
+        try {
+            objectMapper.writeValue(tempFile.toFile(), snapshot);
+            try {
+                Files.move(tempFile, PERSISTENT_TIER_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, PERSISTENT_TIER_FILE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to persist subreddit existence cache: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isExpired(SubredditExistence entry, long now) {
+        long ttl = entry.exists() ? positiveTtl : negativeTtl;
+        return now - entry.checkedAt() > ttl;
+    }
+
+    private static String normalize(String subreddit) {
+        return subreddit.trim().toLowerCase();
+    }
+
+    /**
+     * Result of a single existence check, persisted alongside the time it was made
+     */
+    public record SubredditExistence(boolean exists, long checkedAt) {
+    }
+}
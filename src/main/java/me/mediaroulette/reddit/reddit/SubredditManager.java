@@ -1,89 +1,176 @@
 package me.mediaroulette.reddit.reddit;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import me.hash.mediaroulette.utils.ErrorReporter;
-import me.hash.mediaroulette.utils.PersistentCache;
-import okhttp3.Response;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 public class SubredditManager {
     private static final Logger logger = LoggerFactory.getLogger(SubredditManager.class);
 
-    private static final PersistentCache<Boolean> SUBREDDIT_EXISTS_CACHE =
-            new PersistentCache<>("subreddit_exists.json", new TypeReference<Map<String, Boolean>>() {});
-    private final RedditClient redditClient;
+    private static final SubredditExistenceCache SUBREDDIT_EXISTS_CACHE = new SubredditExistenceCache();
+    private static final int MAX_RANDOM_ATTEMPTS = 10;
+    private static final long REVALIDATION_INTERVAL_HOURS = 24;
+
+    // Existence checks are coalesced into /api/info batches
+    private final SubredditBatchValidator batchValidator;
+
+    // Loaded once from subreddits.txt; the validated subset replaces it once background filtering completes
+    private final String[] subreddits;
+    private volatile String[] validSubreddits = new String[0];
+
+    private final ScheduledExecutorService validationScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reddit-subreddit-validation");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public SubredditManager(RedditClient redditClient) {
-        this.redditClient = redditClient;
+        this.batchValidator = new SubredditBatchValidator(redditClient);
+        this.subreddits = loadSubreddits();
+
+        validationScheduler.scheduleWithFixedDelay(this::filterInvalidSubreddits,
+                0, REVALIDATION_INTERVAL_HOURS, TimeUnit.HOURS);
     }
 
-    public boolean doesSubredditExist(String subreddit) throws IOException {
-        if (SUBREDDIT_EXISTS_CACHE.containsKey(subreddit)) {
-            return SUBREDDIT_EXISTS_CACHE.get(subreddit);
+    private String[] loadSubreddits() {
+        InputStream stream = getClass().getClassLoader().getResourceAsStream("subreddits.txt");
+        if (stream == null) {
+            logger.warn("subreddits.txt not found on the classpath, random subreddits are unavailable");
+            return new String[0];
         }
 
-        String url = "https://oauth.reddit.com/r/" + subreddit + "/about";
-        Response response = redditClient.sendGetRequestAsync(url, redditClient.getAccessToken()).join();
-        String responseBody = response.body().string();
-        response.close();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+            return reader.lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .distinct()
+                    .toArray(String[]::new);
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Failed to load subreddits.txt: {}", e.getMessage());
+            return new String[0];
+        }
+    }
 
-        JSONObject json = new JSONObject(responseBody);
+    /**
+     * Validates the full subreddit list in the background so random picks never wait on lookups.
+     * All checks are queued at once, so the list resolves in batches of up to 100 names per request.
+     */
+    private void filterInvalidSubreddits() {
+        List<CompletableFuture<Boolean>> checks = Arrays.stream(subreddits)
+                .map(subreddit -> doesSubredditExistAsync(subreddit, RedditRateLimiter.Priority.VALIDATION)
+                        .exceptionally(e -> {
+                            // Keep entries we could not check; they are validated again on the next pass
+                            logger.debug("Could not validate subreddit {}: {}", subreddit, e.getMessage());
+                            return true;
+                        }))
+                .toList();
 
-        // If an error key exists, then the subreddit likely does not exist.
-        boolean exists = !json.has("error");
-        SUBREDDIT_EXISTS_CACHE.put(subreddit, exists);
+        CompletableFuture.allOf(checks.toArray(new CompletableFuture[0])).thenRun(() -> {
+            List<String> valid = new ArrayList<>(subreddits.length);
+            for (int i = 0; i < subreddits.length; i++) {
+                if (checks.get(i).join()) {
+                    valid.add(subreddits[i]);
+                } else {
+                    ErrorReporter.reportFailedSubreddit(subreddits[i], "Subreddit validation failed - does not exist", null);
+                }
+            }
+
+            validSubreddits = valid.toArray(String[]::new);
+            logger.info("Validated subreddit list: {}/{} subreddits available", valid.size(), subreddits.length);
+        });
+    }
+
+    public boolean doesSubredditExist(String subreddit) throws IOException {
+        try {
+            return doesSubredditExistAsync(subreddit, RedditRateLimiter.Priority.INTERACTIVE).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Subreddit validation failed: " + cause.getMessage(), cause);
+        }
+    }
 
-        if (SUBREDDIT_EXISTS_CACHE.size() > 1000) {
-            logger.warn("Subreddit cache size exceeded 1000, clearing cache");
-            SUBREDDIT_EXISTS_CACHE.clear();
+    /**
+     * Checks whether a subreddit exists without holding a thread while the request is in flight
+     */
+    public CompletableFuture<Boolean> doesSubredditExistAsync(String subreddit, RedditRateLimiter.Priority priority) {
+        Boolean cached = SUBREDDIT_EXISTS_CACHE.get(subreddit);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
         }
-        return exists;
+
+        return batchValidator.lookup(subreddit, priority)
+                .thenApply(exists -> {
+                    SUBREDDIT_EXISTS_CACHE.put(subreddit, exists);
+                    return exists;
+                });
+    }
+
+    /**
+     * Get existence cache statistics for monitoring
+     */
+    public Map<String, Object> getCacheStats() {
+        return SUBREDDIT_EXISTS_CACHE.getStats();
     }
 
     public String getRandomSubreddit() throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
-                Objects.requireNonNull(getClass().getClassLoader().getResourceAsStream("subreddits.txt"))
-        ))) {
-            List<String> subreddits = new ArrayList<>();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                subreddits.add(line.trim());
-            }
-            if (subreddits.isEmpty()) {
-                throw new IOException("No subreddits available in the list.");
-            }
-            Collections.shuffle(subreddits);
+        if (subreddits.length == 0) {
+            throw new IOException("No subreddits available in the list.");
+        }
 
-            // Try to find a valid subreddit, with a maximum of 10 attempts to avoid infinite loops
-            int attempts = 0;
-            int maxAttempts = Math.min(10, subreddits.size());
+        String[] validated = validSubreddits;
+        if (validated.length > 0) {
+            return validated[ThreadLocalRandom.current().nextInt(validated.length)];
+        }
 
-            for (String subreddit : subreddits) {
-                if (attempts >= maxAttempts) {
-                    break;
-                }
-                attempts++;
-
-                try {
-                    if (doesSubredditExist(subreddit)) {
-                        return subreddit;
-                    } else {
-                        ErrorReporter.reportFailedSubreddit(subreddit, "Subreddit validation failed - does not exist", null);
-                    }
-                } catch (IOException e) {
-                    ErrorReporter.reportFailedSubreddit(subreddit, "Subreddit validation error: " + e.getMessage(), null);
+        // Background validation has not finished yet: check several random picks at once, which share one batch
+        int attempts = Math.min(MAX_RANDOM_ATTEMPTS, subreddits.length);
+        List<String> candidates = new ArrayList<>(attempts);
+        List<CompletableFuture<Boolean>> checks = new ArrayList<>(attempts);
+        for (int i = 0; i < attempts; i++) {
+            String subreddit = subreddits[ThreadLocalRandom.current().nextInt(subreddits.length)];
+            candidates.add(subreddit);
+            checks.add(doesSubredditExistAsync(subreddit, RedditRateLimiter.Priority.INTERACTIVE));
+        }
+
+        for (int i = 0; i < attempts; i++) {
+            String subreddit = candidates.get(i);
+            try {
+                if (checks.get(i).join()) {
+                    return subreddit;
+                } else {
+                    ErrorReporter.reportFailedSubreddit(subreddit, "Subreddit validation failed - does not exist", null);
                 }
+            } catch (CompletionException e) {
+                ErrorReporter.reportFailedSubreddit(subreddit, "Subreddit validation error: " + e.getCause().getMessage(), null);
             }
-
-            // If no valid subreddit found after attempts, throw an exception with helpful message
-            throw new IOException("No valid subreddits found after " + attempts + " attempts. Please use /support for help.");
         }
+
+        // If no valid subreddit found after attempts, throw an exception with helpful message
+        throw new IOException("No valid subreddits found after " + attempts + " attempts. Please use /support for help.");
+    }
+
+    /**
+     * Stops background subreddit validation and writes out pending existence results
+     */
+    public void shutdown() {
+        validationScheduler.shutdownNow();
+        batchValidator.shutdown();
+        SUBREDDIT_EXISTS_CACHE.flush();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package me.mediaroulette.reddit.resolvers;
 
 import me.hash.mediaroulette.utils.media.ffmpeg.resolvers.UrlResolver;
+import me.mediaroulette.reddit.utils.NetworkExecutors;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -57,7 +58,7 @@ public class GfycatResolver implements UrlResolver {
                 logger.error("Failed to resolve Gfycat URL: {} - {}", url, e.getMessage());
                 return url; // Return original URL as last resort
             }
-        });
+        }, NetworkExecutors.shared());
     }
 
     @Override
@@ -83,6 +84,10 @@ public class GfycatResolver implements UrlResolver {
     }
 
     private boolean testVideoUrl(String url) {
+        return NetworkExecutors.withHostPermit(url, () -> probeVideoUrl(url));
+    }
+
+    private boolean probeVideoUrl(String url) {
         try {
             Request request = new Request.Builder()
                     .url(url)
@@ -1,5 +1,6 @@
 package me.mediaroulette.reddit.resolvers;
 
+import me.mediaroulette.reddit.utils.NetworkExecutors;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -28,6 +29,10 @@ public class M3u8Parser {
      * Parse M3U8 playlist and extract the best quality video URL
      */
     public static String extractVideoUrl(String m3u8Url) {
+        return NetworkExecutors.withHostPermit(m3u8Url, () -> fetchAndParse(m3u8Url));
+    }
+
+    private static String fetchAndParse(String m3u8Url) {
         try {
             Request request = new Request.Builder()
                     .url(m3u8Url)
@@ -48,7 +53,7 @@ public class M3u8Parser {
         }
     }
 
-    private static String parseM3u8Content(String content, String baseUrl) {
+    static String parseM3u8Content(String content, String baseUrl) {
         // Look for direct video URLs in the playlist
         Matcher matcher = M3U8_URL_PATTERN.matcher(content);
 
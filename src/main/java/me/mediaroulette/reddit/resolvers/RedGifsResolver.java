@@ -1,6 +1,7 @@
 package me.mediaroulette.reddit.resolvers;
 
 import me.hash.mediaroulette.utils.media.ffmpeg.resolvers.UrlResolver;
+import me.mediaroulette.reddit.utils.NetworkExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,7 +41,7 @@ public class RedGifsResolver implements UrlResolver {
                 logger.error("Failed to resolve RedGifs URL: {}", e.getMessage());
             }
             return url;
-        });
+        }, NetworkExecutors.shared());
     }
 
     private String extractGifNameFromPoster(String posterUrl) {
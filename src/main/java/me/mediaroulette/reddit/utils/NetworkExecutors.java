@@ -0,0 +1,112 @@
+package me.mediaroulette.reddit.utils;
+
+import me.hash.mediaroulette.Main;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Executors for blocking network work (OkHttp execute() calls, response body reads).
+ * Uses a virtual thread per task by default so blocking I/O never parks pool or common ForkJoinPool
+ * threads, with a per-host semaphore bounding how many requests hit the same host at once.
+ * Set REDDIT_VIRTUAL_THREADS=false to fall back to a bounded platform thread pool.
+ */
+public final class NetworkExecutors {
+    private static final Logger logger = LoggerFactory.getLogger(NetworkExecutors.class);
+
+    private static final int DEFAULT_MAX_CONCURRENCY_PER_HOST = 8;
+    private static final int PLATFORM_POOL_SIZE = 16;
+
+    private static final boolean VIRTUAL_THREADS = readBoolean("REDDIT_VIRTUAL_THREADS", true);
+    private static final int MAX_CONCURRENCY_PER_HOST =
+            readInt("REDDIT_MAX_CONCURRENCY_PER_HOST", DEFAULT_MAX_CONCURRENCY_PER_HOST);
+
+    private static final Map<String, Semaphore> HOST_PERMITS = new ConcurrentHashMap<>();
+    private static final ExecutorService SHARED = create("reddit-net");
+
+    private NetworkExecutors() {
+    }
+
+    /**
+     * Shared executor for resolvers and other short-lived blocking network calls
+     */
+    public static ExecutorService shared() {
+        return SHARED;
+    }
+
+    /**
+     * Creates an executor owned (and shut down) by the caller
+     */
+    public static ExecutorService create(String name) {
+        if (VIRTUAL_THREADS) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(PLATFORM_POOL_SIZE, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs a blocking task on the current thread while holding a permit for the URL's host
+     */
+    public static <T> T withHostPermit(String url, Supplier<T> task) {
+        Semaphore permits = HOST_PERMITS.computeIfAbsent(hostOf(url), _ -> new Semaphore(MAX_CONCURRENCY_PER_HOST));
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted waiting for a host permit: " + url);
+        }
+
+        try {
+            return task.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase() : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private static boolean readBoolean(String key, boolean defaultValue) {
+        String value = readEnv(key);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+
+    private static int readInt(String key, int defaultValue) {
+        String value = readEnv(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static String readEnv(String key) {
+        try {
+            String value = Main.getEnv(key);
+            return value == null || value.isBlank() ? null : value;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
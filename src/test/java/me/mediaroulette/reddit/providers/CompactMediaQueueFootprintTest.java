@@ -0,0 +1,86 @@
+package me.mediaroulette.reddit.providers;
+
+import me.hash.mediaroulette.model.content.MediaResult;
+import me.hash.mediaroulette.model.content.MediaSource;
+import me.mediaroulette.reddit.reddit.RedditMedia;
+import me.mediaroulette.reddit.reddit.RedditPost;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the retained heap of one full subreddit queue with JOL, comparing eagerly rendered
+ * MediaResults in a ConcurrentLinkedQueue with the compact column-wise queue.
+ */
+class CompactMediaQueueFootprintTest {
+    private static final int QUEUE_SIZE = 200;
+    // The compact queue must retain at most this fraction of the rendered queue's heap
+    private static final double MAX_FOOTPRINT_RATIO = 0.5;
+
+    @BeforeAll
+    static void registerMediaSource() {
+        try {
+            MediaSource.register("REDDIT", "Reddit");
+        } catch (Exception ignored) {
+            // Already registered by another test in the same JVM
+        }
+    }
+
+    @Test
+    void fullQueueRetainsAFractionOfRenderedResults() {
+        List<RedditMedia> media = media();
+
+        ConcurrentLinkedQueue<MediaResult> renderedQueue = new ConcurrentLinkedQueue<>();
+        CompactMediaQueue compactQueue = new CompactMediaQueue(QUEUE_SIZE);
+        for (RedditMedia item : media) {
+            renderedQueue.offer(item.toMediaResult());
+            assertTrue(compactQueue.offer(item));
+        }
+
+        // The media source is a shared singleton, not part of any one queue
+        GraphLayout shared = GraphLayout.parseInstance(MediaSource.valueOf("REDDIT"));
+        long renderedBytes = GraphLayout.parseInstance(renderedQueue).subtract(shared).totalSize();
+        long compactBytes = GraphLayout.parseInstance(compactQueue).totalSize();
+
+        assertTrue(compactBytes <= renderedBytes * MAX_FOOTPRINT_RATIO,
+                String.format("CompactMediaQueue retains %,d bytes for %d items, ConcurrentLinkedQueue<MediaResult> %,d",
+                        compactBytes, media.size(), renderedBytes));
+    }
+
+    /**
+     * A full queue shaped like a parsed listing: mostly single images, some three-image galleries
+     * sharing one post, and some text posts rendered as cards
+     */
+    private static List<RedditMedia> media() {
+        String subreddit = "EarthPorn".intern();
+        List<RedditMedia> media = new ArrayList<>(QUEUE_SIZE);
+        for (int i = 0; media.size() < QUEUE_SIZE; i++) {
+            String id = Integer.toString(1_500_000_000 + i * 7919, 36);
+            RedditPost post = new RedditPost("Sunrise over the valley after a week of rain, shot number " + i + " [OC] [4000x3000]",
+                    subreddit, "/r/" + subreddit + "/comments/" + id + "/sunrise_over_the_valley_after_a_week_of_rain/");
+
+            if (i % 4 == 0) {
+                for (int image = 1; image <= 3 && media.size() < QUEUE_SIZE; image++) {
+                    long key = RedditMedia.postKey(id, image);
+                    media.add(new RedditMedia(key, key, "https://i.redd.it/" + id + "g" + image + ".jpg",
+                            null, null, post, image, 3));
+                }
+            } else if (i % 5 == 0) {
+                long key = RedditMedia.postKey(id, 0);
+                media.add(new RedditMedia(key, key, "attachment://image.png", "create",
+                        "Has anyone hiked the ridge trail this late in the season? Looking for advice on conditions.",
+                        post, 0, 0));
+            } else {
+                long key = RedditMedia.postKey(id, 0);
+                media.add(new RedditMedia(key, key, "https://i.redd.it/" + id + ".jpeg", null, null, post, 0, 0));
+            }
+        }
+        return media;
+    }
+}
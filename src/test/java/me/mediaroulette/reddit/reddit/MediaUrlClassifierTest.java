@@ -0,0 +1,75 @@
+package me.mediaroulette.reddit.reddit;
+
+import me.mediaroulette.reddit.reddit.MediaUrlClassifier.MediaKind;
+import org.junit.jupiter.api.Test;
+
+import static me.mediaroulette.reddit.reddit.MediaUrlClassifier.classify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MediaUrlClassifierTest {
+
+    @Test
+    void matchesMediaHostsOnLabelBoundaries() {
+        assertEquals(MediaKind.HOSTED, classify("https://imgur.com/gallery/a1b2c3"));
+        assertEquals(MediaKind.HOSTED, classify("https://i.imgur.com/a1b2c3"));
+        assertEquals(MediaKind.HOSTED, classify("https://www.redgifs.com/watch/happyfluffycat"));
+        assertEquals(MediaKind.HOSTED, classify("https://external-preview.redd.it/a1b2c3"));
+
+        assertEquals(MediaKind.NONE, classify("https://notimgur.com.evil/a1b2c3"));
+        assertEquals(MediaKind.NONE, classify("https://fooimgur.com/a1b2c3"));
+        assertEquals(MediaKind.NONE, classify("https://imgur.com.evil/a1b2c3"));
+    }
+
+    @Test
+    void ignoresMediaHostsOutsideTheHost() {
+        assertEquals(MediaKind.NONE, classify("https://example.com/imgur.com/a1b2c3"));
+        assertEquals(MediaKind.NONE, classify("https://example.com/share?u=https://i.imgur.com/a1b2c3"));
+    }
+
+    @Test
+    void readsTheExtensionFromThePathOnly() {
+        assertEquals(MediaKind.IMAGE, classify("https://preview.redd.it/a1b2c3.jpg?width=640&format=pjpg&s=abc"));
+        assertEquals(MediaKind.IMAGE, classify("https://example.com/photo.png?size=large"));
+        assertEquals(MediaKind.GIF, classify("https://example.com/loop.gif#t=2"));
+
+        assertEquals(MediaKind.NONE, classify("https://example.com/download?file=photo.jpg"));
+        assertEquals(MediaKind.NONE, classify("https://example.com/v1.2/photo"));
+        assertEquals(MediaKind.NONE, classify("https://example.com/photo.jpgx"));
+    }
+
+    @Test
+    void classifiesEachExtension() {
+        assertEquals(MediaKind.IMAGE, classify("https://i.redd.it/a1b2c3.jpg"));
+        assertEquals(MediaKind.IMAGE, classify("https://i.redd.it/a1b2c3.jpeg"));
+        assertEquals(MediaKind.IMAGE, classify("https://i.redd.it/a1b2c3.png"));
+        assertEquals(MediaKind.IMAGE, classify("https://i.redd.it/a1b2c3.webp"));
+        assertEquals(MediaKind.GIF, classify("https://i.redd.it/a1b2c3.gif"));
+        assertEquals(MediaKind.VIDEO, classify("https://example.com/clip.mp4"));
+        assertEquals(MediaKind.VIDEO, classify("https://example.com/clip.mov"));
+        assertEquals(MediaKind.VIDEO, classify("https://example.com/clip.webm"));
+    }
+
+    @Test
+    void ignoresCaseInExtensionsAndHosts() {
+        assertEquals(MediaKind.IMAGE, classify("https://example.com/PHOTO.JPG"));
+        assertEquals(MediaKind.VIDEO, classify("https://example.com/clip.WebM"));
+        assertEquals(MediaKind.HOSTED, classify("https://I.IMGUR.COM/a1b2c3"));
+    }
+
+    @Test
+    void endsTheHostAtAPort() {
+        assertEquals(MediaKind.HOSTED, classify("https://i.imgur.com:443/a1b2c3"));
+        assertEquals(MediaKind.VIDEO, classify("http://example.com:8080/clip.mp4"));
+        assertEquals(MediaKind.NONE, classify("https://notimgur.com:443/a1b2c3"));
+    }
+
+    @Test
+    void rejectsPlaceholdersAndOtherSchemes() {
+        assertEquals(MediaKind.NONE, classify(null));
+        assertEquals(MediaKind.NONE, classify(""));
+        assertEquals(MediaKind.NONE, classify("self"));
+        assertEquals(MediaKind.NONE, classify("default"));
+        assertEquals(MediaKind.NONE, classify("nsfw"));
+        assertEquals(MediaKind.NONE, classify("ftp://example.com/photo.jpg"));
+    }
+}